@@ -1,40 +1,210 @@
 package boardgame;
 
-import java.util.Arrays;
 //棋盘类
+//内部使用位棋盘（bitboard）存储：黑、白各一组 long[]，第 p 位表示点 p 是否有该色棋子，
+//点的编号 p = x * size + y，19x19 最多 361 位，只需 6 个 long。
 public class Board implements Cloneable {
     private final int size;
-    private final Piece[][] grid;
+    private final int words;//每种颜色占用的 long 个数
+    private final long[] black;
+    private final long[] white;
+    private final Masks masks;//与棋盘大小相关的常量掩码，同尺寸棋盘共享
+    private long hash;//当前局面的 Zobrist 哈希，在 set 中增量维护
+
 //初始化建立一个棋盘
     public Board(int size) {
         if (size < 8 || size > 19) {
             throw new IllegalArgumentException("Board size must be between 8 and 19.");
         }
         this.size = size;
-        this.grid = new Piece[size][size];
-        for (int i = 0; i < size; i++) {
-            //初始化时全部为空棋子
-            Arrays.fill(this.grid[i], Piece.EMPTY);
-        }
+        this.masks = Masks.of(size);
+        this.words = masks.all.length;
+        //初始化时全部为空棋子（位全为 0）
+        this.black = new long[words];
+        this.white = new long[words];
+        this.hash = Zobrist.emptyBoard(size);
+    }
+
+    //克隆专用：直接复制两组位数组
+    private Board(Board other) {
+        this.size = other.size;
+        this.masks = other.masks;
+        this.words = other.words;
+        this.black = other.black.clone();
+        this.white = other.white.clone();
+        this.hash = other.hash;
     }
 
     public int getSize() {
         return size;
     }
+
+    //棋盘上交叉点总数 size * size
+    public int getPointCount() {
+        return size * size;
+    }
+
+    //位数组的长度（long 个数），供批量位运算的调用方分配缓冲区
+    public int getWordCount() {
+        return words;
+    }
+
+    //(x,y) 对应的点编号
+    public int index(int x, int y) {
+        checkRange(x, y);
+        return x * size + y;
+    }
+
  //获得某一个位置的棋子状态
     public Piece get(int x, int y) {
         checkRange(x, y);
-        return grid[x][y];
+        return get(x * size + y);
     }
+
+    //按点编号读取，不做范围检查，调用方需保证 0 <= point < size * size
+    public Piece get(int point) {
+        long bit = 1L << point;
+        int w = point >>> 6;
+        if ((black[w] & bit) != 0) return Piece.BLACK;
+        if ((white[w] & bit) != 0) return Piece.WHITE;
+        return Piece.EMPTY;
+    }
+
 //落子
     public void set(int x, int y, Piece piece) {
         checkRange(x, y);
-        grid[x][y] = piece;
+        set(x * size + y, piece);
+    }
+
+    //按点编号落子/清空，不做范围检查；同时异或掉旧棋子、异或进新棋子的 Zobrist 键
+    public void set(int point, Piece piece) {
+        long bit = 1L << point;
+        int w = point >>> 6;
+        if ((black[w] & bit) != 0) {
+            black[w] &= ~bit;
+            hash ^= Zobrist.key(Piece.BLACK, point);
+        } else if ((white[w] & bit) != 0) {
+            white[w] &= ~bit;
+            hash ^= Zobrist.key(Piece.WHITE, point);
+        }
+        if (piece == Piece.BLACK) {
+            black[w] |= bit;
+        } else if (piece == Piece.WHITE) {
+            white[w] |= bit;
+        }
+        hash ^= Zobrist.key(piece, point);
+    }
+
+    //仅由棋子决定的局面哈希（不含行棋方）
+    public long getHash() {
+        return hash;
+    }
+
+    //含行棋方的局面哈希，相同棋子但轮到不同方行棋时哈希不同
+    public long getHash(Piece sideToMove) {
+        return hash ^ Zobrist.sideToMove(sideToMove);
     }
 
     public boolean isEmpty(int x, int y) {
-        return get(x, y) == Piece.EMPTY;
+        checkRange(x, y);
+        return isEmpty(x * size + y);
+    }
+
+    public boolean isEmpty(int point) {
+        return ((black[point >>> 6] | white[point >>> 6]) & (1L << point)) == 0;
+    }
+
+    //统计某种状态的点数（popcount）
+    public int count(Piece piece) {
+        if (piece == Piece.EMPTY) {
+            return size * size - count(Piece.BLACK) - count(Piece.WHITE);
+        }
+        long[] bits = bitsOf(piece);
+        int n = 0;
+        for (int i = 0; i < words; i++) {
+            n += Long.bitCount(bits[i]);
+        }
+        return n;
+    }
+
+    //从 from 开始（含）查找下一个 piece 颜色棋子的点编号，没有则返回 -1，用于无分配地遍历棋子
+    public int nextPoint(Piece piece, int from) {
+        if (piece == Piece.EMPTY) {
+            throw new IllegalArgumentException("Use nextEmpty for empty points.");
+        }
+        return nextSetBit(bitsOf(piece), from);
     }
+
+    //从 from 开始（含）查找下一个空点，没有则返回 -1
+    public int nextEmpty(int from) {
+        int n = size * size;
+        if (from >= n) return -1;
+        int w = from >>> 6;
+        long word = ~(black[w] | white[w]) & masks.all[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w >= words) return -1;
+            word = ~(black[w] | white[w]) & masks.all[w];
+        }
+    }
+
+    //将某种颜色棋子的位集合复制到 dst（长度至少为 getWordCount()）
+    public void stones(Piece piece, long[] dst) {
+        if (piece == Piece.EMPTY) {
+            for (int i = 0; i < words; i++) {
+                dst[i] = ~(black[i] | white[i]) & masks.all[i];
+            }
+        } else {
+            System.arraycopy(bitsOf(piece), 0, dst, 0, words);
+        }
+    }
+
+    //计算 src 中各点上下左右相邻点的集合（不含越界点），结果写入 dst，src 与 dst 不能是同一数组
+    //左右相邻用移 1 位加列掩码去掉跨行的位，上下相邻用移 size 位
+    public void neighbors(long[] src, long[] dst) {
+        long[] notFirstCol = masks.notFirstCol;
+        long[] notLastCol = masks.notLastCol;
+        long[] all = masks.all;
+        int s = size;
+        for (int i = 0; i < words; i++) {
+            long cur = src[i];
+            long prev = i > 0 ? src[i - 1] : 0L;
+            long next = i + 1 < words ? src[i + 1] : 0L;
+            //p -> p+1（右邻），p -> p-1（左邻）
+            long right = ((cur << 1) | (prev >>> 63)) & notFirstCol[i];
+            long left = ((cur >>> 1) | (next << 63)) & notLastCol[i];
+            //p -> p+size（下邻），p -> p-size（上邻）
+            long down = (cur << s) | (prev >>> (64 - s));
+            long up = (cur >>> s) | (next << (64 - s));
+            dst[i] = (right | left | down | up) & all[i];
+        }
+    }
+
+    //四邻表：neighborTable()[4 * p + k] 为点 p 的第 k 个相邻点，越界为 -1，同尺寸棋盘共享，调用方不得修改
+    int[] neighborTable() {
+        return masks.neighbors;
+    }
+
+    //在位集合中查找 from 之后（含）的下一个置位
+    static int nextSetBit(long[] bits, int from) {
+        int w = from >>> 6;
+        if (w >= bits.length) return -1;
+        long word = bits[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w >= bits.length) return -1;
+            word = bits[w];
+        }
+    }
+
+    private long[] bitsOf(Piece piece) {
+        return piece == Piece.BLACK ? black : white;
+    }
+
 //检查位置是否合法
     private void checkRange(int x, int y) {
         if (x < 0 || x >= size || y < 0 || y >= size) {
@@ -42,14 +212,10 @@ public class Board implements Cloneable {
         }
     }
 
-    //棋盘克隆函数
+    //棋盘克隆函数，只需复制两组 long 数组
     @Override
     public Board clone() {
-        Board copy = new Board(size);
-        for (int i = 0; i < size; i++) {
-            System.arraycopy(this.grid[i], 0, copy.grid[i], 0, size);
-        }
-        return copy;
+        return new Board(this);
     }
 //文本形式打印棋盘
     public void display(boolean showHint) {
@@ -64,7 +230,7 @@ public class Board implements Cloneable {
         for (int i = 0; i < size; i++) {
             System.out.printf("%2d ", i + 1);
             for (int j = 0; j < size; j++) {
-                System.out.print(grid[i][j].getSymbol() + " ");
+                System.out.print(get(i * size + j).getSymbol() + " ");
             }
             System.out.println();
         }
@@ -77,11 +243,56 @@ public class Board implements Cloneable {
             System.out.println("  pass              围棋虚着");
             System.out.println("  undo              悔棋一步");
             System.out.println("  resign            投子认负");
-            System.out.println("  save filename.txt 保存当前局面");
-            System.out.println("  load filename.txt 读取局面");
+            System.out.println("  goto N            复盘：显示第 N 步之后的局面（goto 0 为起始局面，goto end 回到最新局面）");
+            System.out.println("  hint              提示：五子棋必胜手顺（VCF / VCT），围棋征吃与逃子");
+            System.out.println("  save game.sav     保存对局（含全部着法，读取后可悔棋；.sgf 结尾存为 SGF 棋谱，.txt 结尾存为旧文本格式）");
+            System.out.println("  load game.sav     读取对局（也能读取 .sgf 棋谱和旧的 .txt 存档）");
+            System.out.println("  book file.bin     读取开局库（book off 关闭，book build 生成）");
+            System.out.println("  journal game.log  开启走子日志，异常退出后再开启即可恢复对局（journal off 关闭）");
+            System.out.println("  ai black|white|off 电脑执黑 / 执白 / 关闭电脑");
             System.out.println("  helpon / helpoff  显示/隐藏提示");
             System.out.println("  restart           重新开始当前类型游戏");
             System.out.println("  quit              退出程序");
         }
     }
+
+    //与棋盘大小相关的位掩码（全部有效点、非第一列、非最后一列）以及四邻表
+    private static final class Masks {
+        private static final Masks[] CACHE = new Masks[20];
+
+        static {
+            for (int s = 8; s <= 19; s++) {
+                CACHE[s] = new Masks(s);
+            }
+        }
+
+        final long[] all;
+        final long[] notFirstCol;
+        final long[] notLastCol;
+        final int[] neighbors;
+
+        private Masks(int size) {
+            int n = size * size;
+            int words = (n + 63) >>> 6;
+            all = new long[words];
+            notFirstCol = new long[words];
+            notLastCol = new long[words];
+            neighbors = new int[4 * n];
+            for (int p = 0; p < n; p++) {
+                long bit = 1L << p;
+                all[p >>> 6] |= bit;
+                if (p % size != 0) notFirstCol[p >>> 6] |= bit;
+                if (p % size != size - 1) notLastCol[p >>> 6] |= bit;
+                int x = p / size, y = p % size;
+                neighbors[4 * p] = x + 1 < size ? p + size : -1;
+                neighbors[4 * p + 1] = x > 0 ? p - size : -1;
+                neighbors[4 * p + 2] = y + 1 < size ? p + 1 : -1;
+                neighbors[4 * p + 3] = y > 0 ? p - 1 : -1;
+            }
+        }
+
+        static Masks of(int size) {
+            return CACHE[size];
+        }
+    }
 }
@@ -4,16 +4,21 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseMotionAdapter;
 
 //棋盘绘制和鼠标控制落子，中央棋盘逻辑
 public class BoardPanel extends JPanel {
 
-    //游戏引擎
-    private final GameEngine engine;
+    //引擎的异步命令层，落子通过它排队执行
+    private final EngineExecutor executor;
+    //最近一次收到的棋局快照，绘制和鼠标判断只读它，不直接访问引擎
+    private GameSnapshot snapshot = GameSnapshot.NONE;
+    //鼠标悬停的交叉点（行/列），不在棋盘上为 -1
+    private int hoverRow = -1;
+    private int hoverCol = -1;
 
-
-    public BoardPanel(GameEngine engine) {
-        this.engine = engine;
+    public BoardPanel(EngineExecutor executor) {
+        this.executor = executor;
         setBackground(new Color(230, 200, 150)); // 棋盘木色
 
         // 监听鼠标点击事件，在棋盘上落子，将跟踪鼠标点击的坐标
@@ -22,22 +27,67 @@ public class BoardPanel extends JPanel {
             public void mouseClicked(MouseEvent e) {
                 handleClick(e.getX(), e.getY());
             }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                updateHover(-1, -1);
+            }
+        });
+        // 鼠标移动时在可以落子的交叉点上显示半透明的提示棋子
+        addMouseMotionListener(new MouseMotionAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                if (!snapshot.hasGame()) return;
+                int size = snapshot.getSize();
+                int cellSize = Math.min(getWidth(), getHeight()) / (size + 1);
+                int marginX = (getWidth() - cellSize * (size - 1)) / 2;
+                int marginY = (getHeight() - cellSize * (size - 1)) / 2;
+                int col = Math.round((e.getX() - marginX) / (float) cellSize);
+                int row = Math.round((e.getY() - marginY) / (float) cellSize);
+                if (row < 0 || row >= size || col < 0 || col >= size) {
+                    updateHover(-1, -1);
+                } else {
+                    updateHover(row, col);
+                }
+            }
         });
     }
 
+    //收到引擎发布的新快照，在 EDT 上调用
+    public void setSnapshot(GameSnapshot snapshot) {
+        this.snapshot = snapshot;
+        repaint();
+    }
+
+    //悬停点变化时才重绘
+    private void updateHover(int row, int col) {
+        if (row != hoverRow || col != hoverCol) {
+            hoverRow = row;
+            hoverCol = col;
+            repaint();
+        }
+    }
+
     //处理鼠标点击事件
     private void handleClick(int mouseX, int mouseY) {
-        Board board = engine.getBoard();
-        if (board == null) {
+        if (!snapshot.hasGame()) {
             JOptionPane.showMessageDialog(this, "请先开始一局游戏。");
             return;
         }
-        if (engine.getStatus() != GameStatus.ONGOING) {
+        if (snapshot.isReviewing()) {
+            JOptionPane.showMessageDialog(this, "正在复盘，把下方滑块拖到最右回到最新局面后才能落子。");
+            return;
+        }
+        if (snapshot.getStatus() != GameStatus.ONGOING) {
             JOptionPane.showMessageDialog(this, "对局已结束，请重新开始。");
             return;
         }
+        //上一步还在执行（例如电脑正在思考）时忽略点击，避免替电脑落子
+        if (executor.isBusy() || snapshot.isComputerThinking()) {
+            return;
+        }
 
-        int size = board.getSize();
+        int size = snapshot.getSize();
         int w = getWidth();
         int h = getHeight();
         int cellSize = Math.min(w, h) / (size + 1);
@@ -66,38 +116,26 @@ public class BoardPanel extends JPanel {
 //        if (parent instanceof GameFrame) {
 //            ((GameFrame) parent).updateStatus();
 //        }
-        engine.move(row + 1, col + 1);
-
-// 根据最近一次操作结果弹窗 ↓↓↓
-        if (!engine.wasLastActionSuccess()) {
-            // 落子失败
-            JOptionPane.showMessageDialog(
-                    this,
-                    engine.getLastActionMessage(),
-                    "落子失败",
-                    JOptionPane.WARNING_MESSAGE
-            );
-        } else if (engine.getStatus() != GameStatus.ONGOING) {
-            // 对局结束
-            JOptionPane.showMessageDialog(
-                    this,
-                    engine.getLastActionMessage() + "\n对局结束，状态：" + engine.getStatus(),
-                    "对局结束",
-                    JOptionPane.INFORMATION_MESSAGE
-            );
-        }
-
-        repaint();
-
-// 更新状态栏
-        Container parent = getParent();
-        while (parent != null && !(parent instanceof GameFrame)) {
-            parent = parent.getParent();
-        }
-        if (parent instanceof GameFrame) {
-            ((GameFrame) parent).updateStatus();
-        }
-
+        //落子交给引擎线程，棋盘和状态栏由新快照刷新，这里只处理结果弹窗
+        executor.submit(game -> game.move(row + 1, col + 1), result -> {
+            if (!result.wasLastActionSuccess()) {
+                // 落子失败
+                JOptionPane.showMessageDialog(
+                        this,
+                        result.getLastActionMessage(),
+                        "落子失败",
+                        JOptionPane.WARNING_MESSAGE
+                );
+            } else if (result.getStatus() != GameStatus.ONGOING) {
+                // 对局结束
+                JOptionPane.showMessageDialog(
+                        this,
+                        result.getLastActionMessage() + "\n对局结束，状态：" + result.getStatus(),
+                        "对局结束",
+                        JOptionPane.INFORMATION_MESSAGE
+                );
+            }
+        });
     }
 
     //在图形界面绘制棋盘和棋子
@@ -105,8 +143,8 @@ public class BoardPanel extends JPanel {
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        Board board = engine.getBoard();
-        if (board == null) {
+        GameSnapshot shown = snapshot;
+        if (!shown.hasGame()) {
             // 还没开始对局，画一个提示
             g.setColor(Color.DARK_GRAY);
             g.setFont(new Font("SansSerif", Font.BOLD, 18));
@@ -117,7 +155,7 @@ public class BoardPanel extends JPanel {
             return;
         }
 
-        int size = board.getSize();
+        int size = shown.getSize();
         int w = getWidth();
         int h = getHeight();
         int cellSize = Math.min(w, h) / (size + 1);
@@ -143,7 +181,7 @@ public class BoardPanel extends JPanel {
         int stoneRadius = (int) (cellSize * 0.4);
         for (int row = 0; row < size; row++) {
             for (int col = 0; col < size; col++) {
-                Piece p = board.get(row, col);
+                Piece p = shown.get(row, col);
                 if (p == Piece.EMPTY) continue;
 
                 int cx = marginX + col * cellSize;
@@ -163,5 +201,16 @@ public class BoardPanel extends JPanel {
                         stoneRadius * 2, stoneRadius * 2);
             }
         }
+
+        // === 悬停提示：快照中记录了当前行棋方的合法落点 ===
+        if (hoverRow >= 0 && hoverRow < size && hoverCol >= 0 && hoverCol < size
+                && !shown.isComputerThinking() && shown.isLegal(hoverRow, hoverCol)) {
+            int cx = marginX + hoverCol * cellSize;
+            int cy = marginY + hoverRow * cellSize;
+            g.setColor(shown.getCurrentPlayer() == Piece.BLACK
+                    ? new Color(0, 0, 0, 96) : new Color(255, 255, 255, 128));
+            g.fillOval(cx - stoneRadius, cy - stoneRadius,
+                    stoneRadius * 2, stoneRadius * 2);
+        }
     }
 }
@@ -0,0 +1,88 @@
+package boardgame;
+
+//棋盘的 8 种对称变换（4 种旋转 × 是否镜像）
+//变换表按棋盘尺寸预先算好，apply / hash 都不分配内存。
+//规范形式：8 种变换下哈希最小的那一种（相同时取编号最小的变换），同一局面的各种旋转、镜像得到相同的规范哈希。
+public final class BoardSymmetry {
+    public static final int COUNT = 8;
+
+    //MAP[size][k][p]：变换 k 把点 p 映射到的点
+    private static final int[][][] MAP = new int[20][][];
+    private static final int[] INVERSE = new int[COUNT];
+
+    static {
+        for (int size = 8; size <= 19; size++) {
+            int[][] m = new int[COUNT][size * size];
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    int r = size - 1;
+                    int p = x * size + y;
+                    m[0][p] = x * size + y;
+                    m[1][p] = y * size + (r - x);
+                    m[2][p] = (r - x) * size + (r - y);
+                    m[3][p] = (r - y) * size + x;
+                    m[4][p] = x * size + (r - y);
+                    m[5][p] = (r - x) * size + y;
+                    m[6][p] = y * size + x;
+                    m[7][p] = (r - y) * size + (r - x);
+                }
+            }
+            MAP[size] = m;
+        }
+        //逆变换：在 8 种变换中找复合后为恒等的那一个
+        int[][] m = MAP[8];
+        for (int a = 0; a < COUNT; a++) {
+            for (int b = 0; b < COUNT; b++) {
+                boolean identity = true;
+                for (int p = 0; p < 64 && identity; p++) {
+                    identity = m[b][m[a][p]] == p;
+                }
+                if (identity) {
+                    INVERSE[a] = b;
+                    break;
+                }
+            }
+        }
+    }
+
+    private BoardSymmetry() {
+    }
+
+    //变换 k 作用于 size 路棋盘上的点 point
+    public static int apply(int k, int point, int size) {
+        return MAP[size][k][point];
+    }
+
+    //变换 k 的逆变换
+    public static int inverse(int k) {
+        return INVERSE[k];
+    }
+
+    //棋盘经变换 k 后的局面哈希（含行棋方），与 Board.getHash(side) 使用同一套 Zobrist 键
+    public static long hash(Board board, Piece side, int k) {
+        int size = board.getSize();
+        int[] m = MAP[size][k];
+        long h = Zobrist.emptyBoard(size) ^ Zobrist.sideToMove(side);
+        for (int p = board.nextPoint(Piece.BLACK, 0); p >= 0; p = board.nextPoint(Piece.BLACK, p + 1)) {
+            h ^= Zobrist.key(Piece.BLACK, m[p]);
+        }
+        for (int p = board.nextPoint(Piece.WHITE, 0); p >= 0; p = board.nextPoint(Piece.WHITE, p + 1)) {
+            h ^= Zobrist.key(Piece.WHITE, m[p]);
+        }
+        return h;
+    }
+
+    //规范变换：哈希最小的变换编号
+    public static int canonical(Board board, Piece side) {
+        int best = 0;
+        long bestHash = hash(board, side, 0);
+        for (int k = 1; k < COUNT; k++) {
+            long h = hash(board, side, k);
+            if (h < bestHash) {
+                bestHash = h;
+                best = k;
+            }
+        }
+        return best;
+    }
+}
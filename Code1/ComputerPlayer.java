@@ -0,0 +1,22 @@
+package boardgame;
+//电脑玩家接口，GameEngine 在轮到电脑执的一方时调用
+public interface ComputerPlayer {
+
+    /**
+     * 为 player 选择一步棋，返回点编号 x * size + y（0-based），虚着返回 GameMemento.PASS。
+     * 不得修改传入的棋盘和规则状态，返回的点必须能通过 rule.isLegal。
+     */
+    int chooseMove(Board board, RuleStrategy rule, Piece player);
+
+    /**
+     * 显示给用户的名字。
+     */
+    String getName();
+
+    /**
+     * 最近一次思考的统计信息（搜索深度、模拟次数等），没有时返回空串。
+     */
+    default String getStatistics() {
+        return "";
+    }
+}
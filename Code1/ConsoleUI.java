@@ -1,11 +1,16 @@
 package boardgame;
 
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.Scanner;
 //命令行交互处理类，是游戏与用户交互的接口
 public class ConsoleUI {
     //维护一个游戏引擎
     private final GameEngine engine;
+    //生成开局库时每局收录的步数
+    private static final int BOOK_PLIES = 12;
+    //走子日志默认的落盘窗口（毫秒）
+    static final long JOURNAL_MILLIS = 200;
 
     public ConsoleUI(GameEngine engine) {
         this.engine = engine;
@@ -33,6 +38,7 @@ public class ConsoleUI {
                 switch (cmd) {
                     case "quit":
                     case "exit":
+                        engine.closeJournal();
                         System.out.println("退出程序。");
                         return;
                     case "start":
@@ -59,6 +65,21 @@ public class ConsoleUI {
                     case "load":
                         handleLoad(parts);
                         break;
+                    case "book":
+                        handleBook(parts);
+                        break;
+                    case "journal":
+                        handleJournal(parts);
+                        break;
+                    case "goto":
+                        handleGoto(parts);
+                        break;
+                    case "hint":
+                        engine.hint();
+                        break;
+                    case "ai":
+                        handleComputer(parts);
+                        break;
                     case "helpon":
                         engine.setShowHint(true);
                         break;
@@ -66,7 +87,7 @@ public class ConsoleUI {
                         engine.setShowHint(false);
                         break;
                     default:
-                        System.out.println("未知指令：" + cmd + "。请使用 start/move/pass/undo/resign/save/load/helpon/helpoff/restart/quit。");
+                        System.out.println("未知指令：" + cmd + "。请使用 start/move/pass/undo/resign/goto/hint/save/load/book/journal/ai/helpon/helpoff/restart/quit。");
                 }
             } catch (NumberFormatException e) {
                 System.out.println("无效的数字输入，请检查你的命令格式。");
@@ -129,10 +150,80 @@ public class ConsoleUI {
         }
     }
 
+    //开局库：book file.bin 读取，book off 关闭，book build gomoku|go out.bin game1.sav games.sgf ... 生成
+    private void handleBook(String[] parts) {
+        if (parts.length >= 2 && parts[1].equalsIgnoreCase("off")) {
+            engine.loadOpeningBook(null);
+        } else if (parts.length >= 5 && parts[1].equalsIgnoreCase("build")) {
+            String typeStr = parts[2].toLowerCase(Locale.ROOT);
+            GameType type = typeStr.equals("go") || typeStr.equals("weiqi") ? GameType.GO : GameType.GOMOKU;
+            engine.buildOpeningBook(type, parts[3], Arrays.copyOfRange(parts, 4, parts.length), BOOK_PLIES);
+        } else if (parts.length == 2) {
+            engine.loadOpeningBook(parts[1]);
+        } else {
+            System.out.println("用法：book file.bin | book off | book build gomoku|go out.bin game1.sav ...");
+        }
+    }
+
+    //走子日志：journal file.log [毫秒] 开启（日志里有对局时先恢复），journal off 关闭
+    private void handleJournal(String[] parts) {
+        if (parts.length == 2 && parts[1].equalsIgnoreCase("off")) {
+            engine.closeJournal();
+            System.out.println("走子日志已关闭。");
+        } else if (parts.length == 2 || parts.length == 3) {
+            try {
+                long millis = parts.length == 3 ? Long.parseLong(parts[2]) : JOURNAL_MILLIS;
+                engine.openJournal(parts[1], millis);
+            } catch (NumberFormatException e) {
+                System.out.println("落盘窗口必须为整数毫秒。");
+            }
+        } else {
+            System.out.println("用法：journal file.log [毫秒] | journal off");
+        }
+    }
+
+    //复盘：goto N 跳到第 N 步之后的局面（0 为起始局面），goto end 回到最新局面继续对局
+    private void handleGoto(String[] parts) {
+        if (parts.length != 2) {
+            System.out.println("用法：goto N | goto end");
+            return;
+        }
+        if (parts[1].equalsIgnoreCase("end")) {
+            engine.gotoMove(engine.getMoveCount());
+            return;
+        }
+        try {
+            engine.gotoMove(Integer.parseInt(parts[1]));
+        } catch (NumberFormatException e) {
+            System.out.println("步数必须为整数。");
+        }
+    }
+
+    //设置电脑执子：ai black / ai white / ai off
+    private void handleComputer(String[] parts) {
+        String side = parts.length < 2 ? "" : parts[1].toLowerCase(Locale.ROOT);
+        switch (side) {
+            case "black":
+                engine.setComputerPlayer(Piece.WHITE, false);
+                engine.setComputerPlayer(Piece.BLACK, true);
+                break;
+            case "white":
+                engine.setComputerPlayer(Piece.BLACK, false);
+                engine.setComputerPlayer(Piece.WHITE, true);
+                break;
+            case "off":
+                engine.setComputerPlayer(Piece.BLACK, false);
+                engine.setComputerPlayer(Piece.WHITE, false);
+                break;
+            default:
+                System.out.println("用法：ai black | ai white | ai off");
+        }
+    }
+
     //将当前游戏局面存储到文件中
     private void handleSave(String[] parts) {
         if (parts.length < 2) {
-            System.out.println("用法：save filename.txt");
+            System.out.println("用法：save game.sav（.sgf 结尾存为 SGF 棋谱，.txt 结尾存为旧文本格式）");
             return;
         }
         engine.saveToFile(parts[1]);
@@ -141,7 +232,7 @@ public class ConsoleUI {
     //从对应文件中加载游戏局面
     private void handleLoad(String[] parts) {
         if (parts.length < 2) {
-            System.out.println("用法：load filename.txt");
+            System.out.println("用法：load game.sav");
             return;
         }
         engine.loadFromFile(parts[1]);
@@ -0,0 +1,94 @@
+package boardgame;
+
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+//图形界面与 GameEngine 之间的异步命令层
+//所有对引擎的操作（落子、悔棋、读写文件、电脑思考）都排队交给唯一的引擎线程按顺序执行，
+//执行完后生成不可变的 GameSnapshot，再回到事件派发线程（EDT）通知界面；
+//界面只读快照、从不直接访问引擎，磁盘慢或电脑思考时窗口照常响应、重绘。
+public class EngineExecutor {
+    private final GameEngine engine;
+    private final ExecutorService executor;
+    private final List<Consumer<GameSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger pending = new AtomicInteger();//已提交还没执行完的命令数
+    private volatile GameSnapshot latest = GameSnapshot.NONE;
+
+    public EngineExecutor(GameEngine engine) {
+        this.engine = engine;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "game-engine");
+            t.setDaemon(true);
+            return t;
+        });
+        //引擎由界面驱动时不向控制台打印棋盘
+        executor.execute(() -> {
+            engine.setQuiet(true);
+            //电脑接着要走时先把刚下的这一步显示出来
+            engine.setMoveListener(() -> publish(engine.snapshot()));
+        });
+    }
+
+    //每次引擎状态更新后在 EDT 上调用 listener
+    public void addListener(Consumer<GameSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    //最近一次发布的快照
+    public GameSnapshot getSnapshot() {
+        return latest;
+    }
+
+    //是否还有命令在排队或执行（例如电脑正在思考）
+    public boolean isBusy() {
+        return pending.get() > 0;
+    }
+
+    //在引擎线程上执行 command，完成后先通知所有 listener，再在 EDT 上调用 onDone（可以为 null）
+    public void submit(Consumer<GameEngine> command, Consumer<GameSnapshot> onDone) {
+        pending.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                try {
+                    command.accept(engine);
+                } catch (Throwable e) {
+                    //命令中途出错（包括分配置换表时内存不足这类 Error）时记为失败的操作，onDone 和状态栏看到的是这次的错误
+                    engine.setActionFailed(failure(e));
+                }
+                GameSnapshot snapshot = engine.snapshot();
+                publish(snapshot);
+                if (onDone != null) {
+                    SwingUtilities.invokeLater(() -> onDone.accept(snapshot));
+                }
+            } catch (Throwable e) {
+                //命令失败后引擎状态不完整、生成快照也出错时，沿用上一次的快照并提示失败
+                GameSnapshot failed = latest.withFailure(failure(e));
+                publish(failed);
+                if (onDone != null) {
+                    SwingUtilities.invokeLater(() -> onDone.accept(failed));
+                }
+            } finally {
+                //快照已排进 EDT 之后才算空闲，界面据此放行下一次点击；出错时也要放行，否则界面再也不响应点击
+                pending.decrementAndGet();
+            }
+        });
+    }
+
+    private static String failure(Throwable e) {
+        return "操作失败：" + (e.getMessage() != null ? e.getMessage() : e.toString());
+    }
+
+    private void publish(GameSnapshot snapshot) {
+        latest = snapshot;
+        SwingUtilities.invokeLater(() -> {
+            for (Consumer<GameSnapshot> listener : listeners) {
+                listener.accept(snapshot);
+            }
+        });
+    }
+}
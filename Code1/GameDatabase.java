@@ -0,0 +1,633 @@
+package boardgame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+//本地对局库：只追加的对局段文件 + 按局面哈希排序的磁盘索引，回答"哪些对局下到过这个局面、下一手下在哪里"
+//目录下的文件：
+//  games.dat：文件头（魔数 "BGDB"、版本号）之后依次是每局的 [长度 int][GameRecord 编码]，只在末尾追加，局号从 0 起按追加顺序；
+//  index-NNNNNN.idx：索引段，文件头（魔数 "BGIX"、版本号、覆盖的起始局号、结束局号）之后是按 (局面键, 局号, 步数) 排序的
+//  16 字节定长表项：局面键 long，局号 int，步数 short，下一手 short（规范方向下的点编号，虚着为 -1，终局为 -2）。
+//局面键为 8 种对称变换下最小的哈希（与 OpeningBook 相同的规范形式，含行棋方，五子棋另加一个常数），
+//重放时 8 个变换下的哈希随落子、提子增量更新，建索引的开销与步数成正比。
+//新追加的对局先在内存里攒着，攒够一批（或 flush / close 时）排序写成一个新的索引段，段数过多时合并成一个；
+//索引段只读映射到内存，查询时在各段上二分查找。索引段总是先写临时文件再改名，写之前先把对局段刷到磁盘，
+//所以打开时只需截掉对局段末尾不完整的记录、为还没进索引的对局补建索引。
+//不是线程安全的，同一时间只能由一个线程使用。
+public class GameDatabase implements AutoCloseable {
+    static final int SEGMENT_MAGIC = 0x42474442;
+    static final int INDEX_MAGIC = 0x42474958;
+    static final int VERSION = 1;
+    //Hit.getNextMove 的取值：这个局面是对局的最后一个局面
+    public static final int END_OF_GAME = -2;
+
+    private static final String SEGMENT_FILE = "games.dat";
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final int INDEX_HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 16;
+    private static final int CHUNK_BYTES = 1 << 30;//索引段按 1GB 分块映射，表项不会跨块
+    private static final int PENDING_ENTRIES = 1 << 20;//内存里攒够这么多表项就写一个索引段
+    private static final int MAX_RUNS = 8;
+    private static final long GOMOKU_SALT = 0x6A09E667F3BCC909L;
+
+    //一次命中：局号、局面出现在第几步之前（0 为起始局面）、这局接下来下的着法（查询方向下的点编号）
+    public static final class Hit {
+        private final int gameId;
+        private final int ply;
+        private final int nextMove;
+
+        private Hit(int gameId, int ply, int nextMove) {
+            this.gameId = gameId;
+            this.ply = ply;
+            this.nextMove = nextMove;
+        }
+
+        public int getGameId() {
+            return gameId;
+        }
+
+        public int getPly() {
+            return ply;
+        }
+
+        //下一手的点编号，虚着为 GameMemento.PASS，已是终局为 END_OF_GAME
+        public int getNextMove() {
+            return nextMove;
+        }
+    }
+
+    //一个只读映射的索引段
+    private static final class IndexRun {
+        final Path path;
+        final int firstGame;
+        final int endGame;
+        final long count;
+        final MappedByteBuffer[] chunks;
+
+        IndexRun(Path path, int firstGame, int endGame, long count, MappedByteBuffer[] chunks) {
+            this.path = path;
+            this.firstGame = firstGame;
+            this.endGame = endGame;
+            this.count = count;
+            this.chunks = chunks;
+        }
+
+        long key(long i) {
+            long offset = INDEX_HEADER_BYTES + i * ENTRY_BYTES;
+            return chunks[(int) (offset / CHUNK_BYTES)].getLong((int) (offset % CHUNK_BYTES));
+        }
+
+        long value(long i) {
+            long offset = INDEX_HEADER_BYTES + i * ENTRY_BYTES + 8;
+            return chunks[(int) (offset / CHUNK_BYTES)].getLong((int) (offset % CHUNK_BYTES));
+        }
+
+        //第一个局面键不小于 key 的表项
+        long lowerBound(long key) {
+            long lo = 0, hi = count;
+            while (lo < hi) {
+                long mid = (lo + hi) >>> 1;
+                if (key(mid) < key) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    private final Path directory;
+    private final FileChannel segment;
+    private long segmentEnd;
+    private long[] offsets = new long[1024];//每局在对局段中的位置
+    private int gameCount;
+    private final List<IndexRun> runs = new ArrayList<>();
+    private int nextRunNumber;
+    //还没写进索引段的表项，与索引段的表项同样编码：局面键 + (局号 << 32 | 步数 << 16 | 下一手)
+    private long[] pendingKeys = new long[1024];
+    private long[] pendingValues = new long[1024];
+    private int pendingCount;
+    private int pendingFirstGame;//内存表项覆盖的起始局号，此前的对局都已在索引段中
+    private final long[] hashes = new long[BoardSymmetry.COUNT];
+
+    private GameDatabase(Path directory, FileChannel segment) {
+        this.directory = directory;
+        this.segment = segment;
+    }
+
+    //打开（没有时创建）目录下的对局库
+    public static GameDatabase open(String directory) throws IOException {
+        Path dir = Path.of(directory);
+        Files.createDirectories(dir);
+        FileChannel channel = FileChannel.open(dir.resolve(SEGMENT_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        GameDatabase db = new GameDatabase(dir, channel);
+        try {
+            db.load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return db;
+    }
+
+    //对局数
+    public int size() {
+        return gameCount;
+    }
+
+    //追加一局，返回局号；着法重放不合法时抛出 IOException，对局库不变
+    public int add(GameRecord record) throws IOException {
+        int id = gameCount;
+        int pendingBefore = pendingCount;
+        try {
+            index(record, id);
+        } catch (IOException e) {
+            pendingCount = pendingBefore;
+            throw e;
+        }
+        byte[] bytes = record.toBytes();
+        if (segmentEnd + 4 + bytes.length > Integer.MAX_VALUE) {
+            pendingCount = pendingBefore;
+            throw new IOException("Game segment is full: " + directory);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(4 + bytes.length);
+        buf.putInt(bytes.length).put(bytes).flip();
+        long position = segmentEnd;
+        try {
+            while (buf.hasRemaining()) {
+                position += segment.write(buf, position);
+            }
+        } catch (IOException e) {
+            //写了一半：撤掉这局的索引表项，局号留给下一局；已写出的部分由下一局覆盖，能截掉就先截掉
+            pendingCount = pendingBefore;
+            try {
+                segment.truncate(segmentEnd);
+            } catch (IOException ignored) {
+                //打开时也会截掉不完整的尾部
+            }
+            throw e;
+        }
+        addOffset(segmentEnd);
+        segmentEnd = position;
+        if (pendingCount >= PENDING_ENTRIES) {
+            flush();
+        }
+        return id;
+    }
+
+    //读出第 id 局
+    public GameRecord getGame(int id) throws IOException {
+        if (id < 0 || id >= gameCount) {
+            throw new IllegalArgumentException("No game " + id + ".");
+        }
+        long offset = offsets[id];
+        long end = id + 1 < gameCount ? offsets[id + 1] : segmentEnd;
+        ByteBuffer buf = ByteBuffer.allocate((int) (end - offset));
+        readFully(buf, offset);
+        buf.flip();
+        buf.position(4);
+        return GameRecord.fromBytes(buf, directory + "#" + id);
+    }
+
+    //下到过 board（side 行棋）的对局，最多返回 limit 个；下一手已换算到 board 的方向
+    public List<Hit> find(GameType type, Board board, Piece side, int limit) {
+        int size = board.getSize();
+        long salt = type == GameType.GOMOKU ? GOMOKU_SALT : 0L;
+        int best = 0;
+        long key = BoardSymmetry.hash(board, side, 0) ^ salt;
+        for (int k = 1; k < BoardSymmetry.COUNT; k++) {
+            long h = BoardSymmetry.hash(board, side, k) ^ salt;
+            if (h < key) {
+                key = h;
+                best = k;
+            }
+        }
+        int back = BoardSymmetry.inverse(best);
+        List<Hit> hits = new ArrayList<>();
+        for (IndexRun run : runs) {
+            for (long i = run.lowerBound(key); i < run.count && hits.size() < limit && run.key(i) == key; i++) {
+                addHit(hits, run.value(i), back, size);
+            }
+        }
+        for (int i = 0; i < pendingCount && hits.size() < limit; i++) {
+            if (pendingKeys[i] == key) {
+                addHit(hits, pendingValues[i], back, size);
+            }
+        }
+        return hits;
+    }
+
+    //把内存里的表项写成索引段，并把对局段刷到磁盘
+    public void flush() throws IOException {
+        if (pendingCount == 0) return;
+        //索引段不能领先于已落盘的对局
+        segment.force(false);
+        sort(pendingKeys, pendingValues, 0, pendingCount);
+        Path path = nextRunPath();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+            buf.putInt(INDEX_MAGIC).putInt(VERSION).putInt(pendingFirstGame).putInt(gameCount);
+            for (int i = 0; i < pendingCount; i++) {
+                if (buf.remaining() < ENTRY_BYTES) drain(out, buf);
+                buf.putLong(pendingKeys[i]).putLong(pendingValues[i]);
+            }
+            drain(out, buf);
+            out.force(false);
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        runs.add(openRun(path));
+        pendingCount = 0;
+        pendingFirstGame = gameCount;
+        if (runs.size() > MAX_RUNS) {
+            mergeRuns();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            segment.force(true);
+        } finally {
+            segment.close();
+        }
+    }
+
+    //打开时扫描对局段、截掉末尾不完整的记录，载入索引段，为还没进索引的对局补建索引
+    private void load() throws IOException {
+        long length = segment.size();
+        if (length == 0) {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+            header.putInt(SEGMENT_MAGIC).putInt(VERSION).flip();
+            segment.write(header, 0);
+            length = SEGMENT_HEADER_BYTES;
+        }
+        if (length < SEGMENT_HEADER_BYTES || length > Integer.MAX_VALUE) {
+            throw new IOException("Not a game database: " + directory);
+        }
+        MappedByteBuffer map = segment.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        if (map.getInt(0) != SEGMENT_MAGIC || map.getInt(4) != VERSION) {
+            throw new IOException("Not a game database: " + directory);
+        }
+        long position = SEGMENT_HEADER_BYTES;
+        while (position + 4 <= length) {
+            int n = map.getInt((int) position);
+            if (n <= 0 || position + 4 + n > length) break;
+            addOffset(position);
+            position += 4 + n;
+        }
+        segmentEnd = position;
+
+        List<IndexRun> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "index-*")) {
+            for (Path path : files) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(path);//写到一半的索引段
+                    continue;
+                }
+                int number = Integer.parseInt(name.substring(6, name.length() - 4));
+                nextRunNumber = Math.max(nextRunNumber, number + 1);
+                found.add(openRun(path));
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected index file in " + directory, e);
+        }
+        //合并中断时新旧段同时存在：保留覆盖范围最大的，从 0 起首尾相接，其余删掉
+        found.sort(Comparator.comparingInt((IndexRun r) -> r.firstGame).thenComparingInt(r -> -r.endGame));
+        int covered = 0;
+        for (IndexRun run : found) {
+            if (run.firstGame == covered && run.endGame > covered && run.endGame <= gameCount) {
+                runs.add(run);
+                covered = run.endGame;
+            } else {
+                Files.delete(run.path);
+            }
+        }
+        pendingFirstGame = covered;
+        for (int id = covered; id < gameCount; id++) {
+            try {
+                index(getGame(id), id);
+            } catch (IOException e) {
+                //追加到一半就中断的记录，连同之后的内容一起截掉
+                segmentEnd = offsets[id];
+                gameCount = id;
+                break;
+            }
+        }
+        if (segmentEnd < length) {
+            segment.truncate(segmentEnd);
+        }
+    }
+
+    //重放一局，把每个局面（含终局）的规范键和下一手加入内存表项
+    private void index(GameRecord record, int id) throws IOException {
+        int size = record.getSize();
+        long salt = record.getGameType() == GameType.GOMOKU ? GOMOKU_SALT : 0L;
+        Arrays.fill(hashes, Zobrist.emptyBoard(size) ^ salt);
+        Board board = new Board(size);
+        for (int p = 0; p < board.getPointCount(); p++) {
+            Piece c = record.getSetup(p);
+            if (c != Piece.EMPTY) {
+                board.set(p, c);
+                toggle(c, p, size);
+            }
+        }
+        RuleStrategy rule = record.getGameType() == GameType.GOMOKU ? new GomokuRule()
+                : new GoRule(record.getKoRule(), record.getScoringRule(), record.getKomi());
+        int[] moves = record.getMoves();
+        if (moves.length > Short.MAX_VALUE) {
+            throw new IOException("Game " + id + " is too long to index.");
+        }
+        Piece side = record.getSetupPlayer();
+        GameStatus status = GameStatus.ONGOING;
+        for (int ply = 0; ; ply++) {
+            int next = ply < moves.length ? moves[ply] : END_OF_GAME;
+            addEntry(side, id, ply, next, size);
+            if (next == END_OF_GAME) break;
+            if (status != GameStatus.ONGOING) {
+                throw new IOException("Game " + id + " has moves after the end of the game.");
+            }
+            RuleStrategy.MoveResult r = next == GameMemento.PASS ? rule.pass(board, side)
+                    : next >= 0 && next < board.getPointCount() ? rule.placePiece(board, next / size, next % size, side) : null;
+            if (r == null || !r.isSuccess()) {
+                throw new IOException("Game " + id + " has an illegal move at ply " + (ply + 1) + ".");
+            }
+            if (next != GameMemento.PASS) {
+                toggle(side, next, size);
+                Piece opponent = side.opposite();
+                for (int i = 0, n = rule.getLastCaptureCount(); i < n; i++) {
+                    toggle(opponent, rule.getLastCapture(i), size);
+                }
+            }
+            status = r.getStatus();
+            side = side.opposite();
+        }
+    }
+
+    //8 个变换下的哈希同时加入 / 去掉点 p 上的 piece
+    private void toggle(Piece piece, int p, int size) {
+        for (int k = 0; k < BoardSymmetry.COUNT; k++) {
+            hashes[k] ^= Zobrist.key(piece, BoardSymmetry.apply(k, p, size));
+        }
+    }
+
+    //取哈希最小的变换为规范方向，局面对称（哈希相同）时取变换后编号最小的着法
+    private void addEntry(Piece side, int id, int ply, int next, int size) {
+        long toMove = Zobrist.sideToMove(side);
+        long key = Long.MAX_VALUE;
+        int move = Integer.MAX_VALUE;
+        for (int k = 0; k < BoardSymmetry.COUNT; k++) {
+            long h = hashes[k] ^ toMove;
+            int m = next >= 0 ? BoardSymmetry.apply(k, next, size) : next;
+            if (h < key || (h == key && m < move)) {
+                key = h;
+                move = m;
+            }
+        }
+        if (pendingCount == pendingKeys.length) {
+            pendingKeys = Arrays.copyOf(pendingKeys, pendingCount * 2);
+            pendingValues = Arrays.copyOf(pendingValues, pendingCount * 2);
+        }
+        pendingKeys[pendingCount] = key;
+        pendingValues[pendingCount++] = (long) id << 32 | (long) (ply & 0xFFFF) << 16 | (move & 0xFFFF);
+    }
+
+    private void addHit(List<Hit> hits, long value, int back, int size) {
+        int id = (int) (value >>> 32);
+        if (id >= gameCount) return;
+        int move = (short) value;
+        hits.add(new Hit(id, (int) (value >>> 16) & 0xFFFF, move >= 0 ? BoardSymmetry.apply(back, move, size) : move));
+    }
+
+    //把所有索引段归并成一个
+    private void mergeRuns() throws IOException {
+        Path path = nextRunPath();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        int k = runs.size();
+        long[] cursor = new long[k];
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+            buf.putInt(INDEX_MAGIC).putInt(VERSION).putInt(runs.get(0).firstGame).putInt(runs.get(k - 1).endGame);
+            while (true) {
+                int min = -1;
+                long minKey = 0, minValue = 0;
+                for (int r = 0; r < k; r++) {
+                    IndexRun run = runs.get(r);
+                    if (cursor[r] == run.count) continue;
+                    long key = run.key(cursor[r]);
+                    long value = run.value(cursor[r]);
+                    if (min < 0 || key < minKey || (key == minKey && value < minValue)) {
+                        min = r;
+                        minKey = key;
+                        minValue = value;
+                    }
+                }
+                if (min < 0) break;
+                cursor[min]++;
+                if (buf.remaining() < ENTRY_BYTES) drain(out, buf);
+                buf.putLong(minKey).putLong(minValue);
+            }
+            drain(out, buf);
+            out.force(false);
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        IndexRun merged = openRun(path);
+        for (IndexRun run : runs) {
+            Files.delete(run.path);
+        }
+        runs.clear();
+        runs.add(merged);
+    }
+
+    private Path nextRunPath() {
+        return directory.resolve(String.format("index-%06d.idx", nextRunNumber++));
+    }
+
+    private static IndexRun openRun(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < INDEX_HEADER_BYTES || (length - INDEX_HEADER_BYTES) % ENTRY_BYTES != 0) {
+                throw new IOException("Not a game index: " + path);
+            }
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((length + CHUNK_BYTES - 1) / CHUNK_BYTES)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = (long) i * CHUNK_BYTES;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_BYTES, length - start));
+            }
+            MappedByteBuffer head = chunks[0];
+            if (head.getInt(0) != INDEX_MAGIC || head.getInt(4) != VERSION) {
+                throw new IOException("Not a game index: " + path);
+            }
+            return new IndexRun(path, head.getInt(8), head.getInt(12),
+                    (length - INDEX_HEADER_BYTES) / ENTRY_BYTES, chunks);
+        }
+    }
+
+    private void addOffset(long offset) {
+        if (gameCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, gameCount * 2);
+        }
+        offsets[gameCount++] = offset;
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = segment.read(buf, position);
+            if (n < 0) throw new IOException("Unexpected end of game segment: " + directory);
+            position += n;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    //按 (键, 值) 排序两个平行数组：三数取中的快速排序，短区间用插入排序
+    private static void sort(long[] keys, long[] values, int from, int to) {
+        while (to - from > 16) {
+            int mid = (from + to) >>> 1;
+            int a = from, b = mid, c = to - 1;
+            int m = less(keys, values, a, b)
+                    ? (less(keys, values, b, c) ? b : less(keys, values, a, c) ? c : a)
+                    : (less(keys, values, a, c) ? a : less(keys, values, b, c) ? c : b);
+            long pk = keys[m], pv = values[m];
+            int i = from, j = to - 1;
+            while (i <= j) {
+                while (keys[i] < pk || (keys[i] == pk && values[i] < pv)) i++;
+                while (keys[j] > pk || (keys[j] == pk && values[j] > pv)) j--;
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            //先递归短的一半，长的一半循环处理，栈深度不超过 log n
+            if (j - from < to - i) {
+                sort(keys, values, from, j + 1);
+                from = i;
+            } else {
+                sort(keys, values, i, to);
+                to = j + 1;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && less(keys, values, j, j - 1); j--) {
+                swap(keys, values, j, j - 1);
+            }
+        }
+    }
+
+    private static boolean less(long[] keys, long[] values, int a, int b) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && values[a] < values[b]);
+    }
+
+    private static void swap(long[] keys, long[] values, int a, int b) {
+        long k = keys[a];
+        keys[a] = keys[b];
+        keys[b] = k;
+        long v = values[a];
+        values[a] = values[b];
+        values[b] = v;
+    }
+
+    //命令行入口：
+    //  GameDatabase 目录 import 文件...   导入 .sgf 棋谱集或 .sav 存档
+    //  GameDatabase 目录 bench 次数       从库中随机取局面查询，统计平均耗时
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("用法：GameDatabase 目录 import 文件... | GameDatabase 目录 bench 次数");
+            return;
+        }
+        try (GameDatabase db = open(args[0])) {
+            if (args[1].equals("import")) {
+                long start = System.nanoTime();
+                int added = 0, errors = 0;
+                for (int f = 2; f < args.length; f++) {
+                    String file = args[f];
+                    if (!file.regionMatches(true, file.length() - 4, ".sgf", 0, 4)) {
+                        try {
+                            db.add(GameRecord.read(file));
+                            added++;
+                        } catch (IOException e) {
+                            errors++;
+                        }
+                        continue;
+                    }
+                    try (FileChannel channel = FileChannel.open(Path.of(file), StandardOpenOption.READ)) {
+                        SgfReader reader = new SgfReader(channel);
+                        int failed = -1;
+                        while (true) {
+                            try {
+                                GameRecord record = reader.next();
+                                if (record == null) break;
+                                db.add(record);
+                                added++;
+                            } catch (IOException e) {
+                                if (reader.getGameIndex() == failed) throw e;
+                                failed = reader.getGameIndex();
+                                errors++;
+                            }
+                        }
+                    }
+                }
+                db.flush();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("导入 %d 局，出错 %d 局，用时 %.2f 秒，每秒 %.0f 局；库中共 %d 局%n",
+                        added, errors, seconds, seconds == 0 ? 0.0 : added / seconds, db.size());
+            } else if (args[1].equals("bench") && args.length > 2 && db.size() > 0) {
+                int queries = Integer.parseInt(args[2]);
+                SplittableRandom random = new SplittableRandom(1);
+                long nanos = 0, hits = 0;
+                for (int q = 0; q < queries; q++) {
+                    GameRecord record = db.getGame(random.nextInt(db.size()));
+                    int[] moves = record.getMoves();
+                    int ply = random.nextInt(Math.min(moves.length, 30) + 1);
+                    Board board = new Board(record.getSize());
+                    Piece side = positionAt(record, ply, board);
+                    long t0 = System.nanoTime();
+                    hits += db.find(record.getGameType(), board, side, Integer.MAX_VALUE).size();
+                    nanos += System.nanoTime() - t0;
+                }
+                System.out.printf("库中 %d 局，%d 次查询（前 30 步内的局面），平均每次 %.3f 毫秒，平均命中 %.1f 局%n",
+                        db.size(), queries, nanos / 1e6 / queries, (double) hits / queries);
+            } else {
+                System.out.println("用法：GameDatabase 目录 import 文件... | GameDatabase 目录 bench 次数");
+            }
+        }
+    }
+
+    //在 board 上重放 record 的前 ply 步，返回接下来的行棋方
+    private static Piece positionAt(GameRecord record, int ply, Board board) {
+        int size = record.getSize();
+        for (int p = 0; p < board.getPointCount(); p++) {
+            board.set(p, record.getSetup(p));
+        }
+        RuleStrategy rule = record.getGameType() == GameType.GOMOKU ? new GomokuRule()
+                : new GoRule(record.getKoRule(), record.getScoringRule(), record.getKomi());
+        int[] moves = record.getMoves();
+        Piece side = record.getSetupPlayer();
+        for (int i = 0; i < ply; i++) {
+            if (moves[i] == GameMemento.PASS) rule.pass(board, side);
+            else rule.placePiece(board, moves[i] / size, moves[i] % size, side);
+            side = side.opposite();
+        }
+        return side;
+    }
+}
@@ -1,8 +1,13 @@
 package boardgame;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
+import java.util.Iterator;
 
 public class GameEngine {
     private Board board;
@@ -11,9 +16,31 @@ public class GameEngine {
     private Piece currentPlayer;
     private GameStatus status;
     private boolean showHint = true;
-    private final Deque<GameMemento> history = new ArrayDeque<>();
+    private final Deque<GameMemento> history = new ArrayDeque<>();//每一步的反向增量记录
+    private int[] captureBuffer = new int[64];//所有记录共享的提子缓冲区，按栈方式使用
+    private int captureTop = 0;
     private int undoCount = 0;  // 用来记录悔棋的次数
+    private Board setupBoard;//着法记录开始时的局面（读取只有局面的旧存档后），从空棋盘开始时为 null
+    private Piece setupPlayer = Piece.BLACK;//着法记录开始时的行棋方
     private final int MAX_UNDO_COUNT = 3;  // 设置最大悔棋次数为 3 次
+    private final boolean[] computerSide = new boolean[Piece.values().length];//按 Piece 的 ordinal 记录哪一方由电脑执子
+    private ComputerPlayer computer;//当前棋类的电脑玩家，第一次需要时才创建
+    private final ComputerPlayer[] assignedPlayer = new ComputerPlayer[Piece.values().length];//为某一方指定的电脑玩家，没有时用 computer
+    private boolean computerThinking = false;//正在执行电脑的回合
+    private TranspositionTable table;//电脑玩家共用的置换表（堆外内存），第一次需要时才分配
+    private static final int TABLE_MEGABYTES = 64;
+    private static final long COMPUTER_THINK_MILLIS = 800;
+    private GomokuSolver solver;//必胜提示用的求解器，第一次需要时才创建
+    private GoTactics tactics;//围棋提示用的征子 / 吃子计算，第一次需要时才创建
+    private OpeningBook openingBook;//电脑玩家使用的开局库，没有为 null
+    private static final int SOLVER_MEGABYTES = 16;
+    private static final long HINT_MAX_NODES = 2_000_000;
+    private static final long HINT_MILLIS = 2000;
+    private Runnable moveListener;//每步之后、电脑应手之前的通知，供界面先显示这一步
+    private MoveJournal journal;//走子日志，没有开启时为 null
+    private boolean replaying = false;//正在按记录重放着法，这些着法不逐条写进走子日志
+    private GameReplay review;//复盘中显示的局面，不复盘时为 null；复盘只读，对局本身停在最新一步
+    private boolean quiet = false;//安静模式：不向控制台输出、不显示棋盘，供批量自对弈使用
 
 
     //    public void startGame(GameType type, int size) {
@@ -38,29 +65,49 @@ public class GameEngine {
         this.currentPlayer = Piece.BLACK; // 默认黑先
         this.status = GameStatus.ONGOING;
         this.history.clear();
+        this.captureTop = 0;
         this.undoCount = 0;
+        this.setupBoard = null;
+        this.setupPlayer = Piece.BLACK;
+        this.review = null;
 
         if (type == GameType.GOMOKU) {
             this.rule = new GomokuRule();
         } else {
             this.rule = new GoRule();
         }
-        saveToHistory(); // 初始状态
-
+        this.computer = null;
+        writeJournal(j -> j.checkpoint(toRecord(), undoCount));
         // 设置游戏开始的信息
         String gameTypeStr = (gameType == GameType.GOMOKU) ? "五子棋" : "围棋";
         lastActionMessage = "游戏开始！\n类型: " + gameTypeStr + "\n棋盘大小: " + size + "x" + size + "\n当前玩家: 黑方（先手）";
         lastActionSuccess = true;  // 游戏成功开始
 
-        System.out.println("新对局开始： " + gameTypeStr + "，棋盘大小 " + size + "x" + size + "。黑先。");
-        board.display(showHint);
+        print("新对局开始： " + gameTypeStr + "，棋盘大小 " + size + "x" + size + "。黑先。");
+        display();
+        //电脑执黑时由电脑下第一手，开局提示保留在前面
+        String startMessage = lastActionMessage;
+        playComputerTurns();
+        if (!history.isEmpty() || !lastActionSuccess) {
+            lastActionMessage = startMessage + "\n" + lastActionMessage;
+            lastActionSuccess = true;
+        }
     }
 
 
-    private void saveToHistory() {
-        if (board != null) {
-            history.push(new GameMemento(board.clone(), currentPlayer, status));
+    //记录一步成功的落子 / 虚着：只保存落子点、提子和行棋前的状态，悔棋时原地撤销
+    //提子追加到共享缓冲区，不为每次提子单独分配数组
+    private void saveToHistory(int point, int previousPasses) {
+        int n = point == GameMemento.PASS ? 0 : rule.getLastCaptureCount();
+        if (captureTop + n > captureBuffer.length) {
+            captureBuffer = Arrays.copyOf(captureBuffer, Math.max(captureBuffer.length * 2, captureTop + n));
         }
+        int offset = captureTop;
+        for (int i = 0; i < n; i++) {
+            captureBuffer[captureTop++] = rule.getLastCapture(i);
+        }
+        history.push(new GameMemento(point, currentPlayer, status, previousPasses, captureBuffer, offset, n));
+        writeJournal(j -> j.move(point));
     }
 
     //    public void restart() {
@@ -114,42 +161,43 @@ public class GameEngine {
 //    }
     //落子操作
     public void move(int x1Based, int y1Based) {
-        if (!ensureGameRunning()) return;
+        if (!ensureGameRunning() || !ensureNotReviewing()) return;
         if (status != GameStatus.ONGOING) {
-            System.out.println("对局已结束，请先重新开始（restart / start）。");
+            print("对局已结束，请先重新开始（restart / start）。");
             lastActionSuccess = false;
             lastActionMessage = "对局已结束，不能继续落子。";
             return;
         }
         int x = x1Based - 1;
         int y = y1Based - 1;
-        //下棋前先进行状态的存储
-        saveToHistory();
+        int passesBefore = rule.getConsecutivePasses();
         //调用具体的落子函数
         RuleStrategy.MoveResult result = rule.placePiece(board, x, y, currentPlayer);
 
         // 记录最近一次操作结果
         lastActionSuccess = result.isSuccess();
-        lastActionMessage = result.getMessage();
+        lastActionMessage = describe(result, currentPlayer);
 
         if (!result.isSuccess()) {
-            // 恢复保存前的状态
-            history.pop();
-            System.out.println("落子失败：" + result.getMessage());
+            print("落子失败：" + lastActionMessage);
             // 注意：status 不变
             return;
         }
 
+        //落子成功后再记录这一步，失败的落子不进入历史
+        saveToHistory(x * board.getSize() + y, passesBefore);
         this.status = result.getStatus();
-        System.out.println(result.getMessage());
+        print(lastActionMessage);
 
         if (status == GameStatus.ONGOING) {
             currentPlayer = currentPlayer.opposite();
         } else {
-            board.display(showHint);
-            System.out.println("对局结束，状态：" + status);
+            display();
+            print("对局结束，状态：" + status);
         }
-        board.display(showHint);
+        display();
+        notifyMove();
+        playComputerTurns();
     }
 
 
@@ -177,37 +225,42 @@ public class GameEngine {
 //    }
     //围棋的“虚着”操作
     public void pass() {
-        if (!ensureGameRunning()) return;
+        if (!ensureGameRunning() || !ensureNotReviewing()) return;
         if (gameType != GameType.GO) {
             String msg = "只有围棋支持虚着（pass）。";
-            System.out.println(msg);
+            print(msg);
             lastActionSuccess = false;
             lastActionMessage = msg;
             return;
         }
         if (status != GameStatus.ONGOING) {
             String msg = "对局已结束，不能虚着。";
-            System.out.println(msg);
+            print(msg);
             lastActionSuccess = false;
             lastActionMessage = msg;
             return;
         }
-        saveToHistory();
+        int passesBefore = rule.getConsecutivePasses();
         //调用具体的虚着函数
         RuleStrategy.MoveResult result = rule.pass(board, currentPlayer);
 
         lastActionSuccess = result.isSuccess();
-        lastActionMessage = result.getMessage();
+        lastActionMessage = describe(result, currentPlayer);
+        if (result.isSuccess()) {
+            saveToHistory(GameMemento.PASS, passesBefore);
+        }
 
-        System.out.println(result.getMessage());
+        print(lastActionMessage);
         this.status = result.getStatus();
         if (status == GameStatus.ONGOING) {
             currentPlayer = currentPlayer.opposite();
-            board.display(showHint);
+            display();
         } else {
-            board.display(showHint);
-            System.out.println("对局结束，状态：" + status);
+            display();
+            print("对局结束，状态：" + status);
         }
+        notifyMove();
+        playComputerTurns();
     }
 
 
@@ -230,8 +283,8 @@ public class GameEngine {
 //        }
 //    }
     public void undo() {
-        if (!ensureGameRunning()) return;
-        if (history.size() <= 1) {
+        if (!ensureGameRunning() || !ensureNotReviewing()) return;
+        if (history.isEmpty()) {
             // 无棋可悔
             lastActionSuccess = false;
             lastActionMessage = "无棋可悔。";
@@ -249,24 +302,34 @@ public class GameEngine {
             return;
         }
 
-        // 丢弃当前状态
-        history.pop();
-        // 获取上一状态
-        GameMemento prev = history.peek();
+        // 取出最近一步，由规则在棋盘上原地撤销（清空落子点、放回被提的子、回退规则内部状态）
+        GameMemento prev = history.pop();
         if (prev != null) {
-            this.board = prev.getBoardSnapshot().clone();
-            this.currentPlayer = prev.getCurrentPlayer();
-            this.status = prev.getStatus();
+            undoStep(prev);
+            //与电脑对弈时，撤销的是电脑的应手，再撤销一步让玩家收回自己的棋
+            if (isComputer(currentPlayer) && !isComputer(currentPlayer.opposite()) && !history.isEmpty()) {
+                undoStep(history.pop());
+            }
 
             String msg = currentPlayer + " 悔棋成功，轮到 " + currentPlayer.opposite() + " 行棋。";
             lastActionMessage = msg;
             lastActionSuccess = true;
 
             // 打印消息
-            System.out.println(msg);
+            print(msg);
+            playComputerTurns();
         }
     }
 
+    //在棋盘上原地撤销一条记录，恢复行棋方和对局状态
+    private void undoStep(GameMemento record) {
+        rule.undo(board, record);
+        captureTop = record.getCaptureOffset();
+        this.currentPlayer = record.getCurrentPlayer();
+        this.status = record.getStatus();
+        writeJournal(j -> j.undo(undoCount));
+    }
+
 
     //    public void resign() {
 //        if (!ensureGameRunning()) return;
@@ -285,10 +348,10 @@ public class GameEngine {
 //    }
     //投子认负
     public void resign() {
-        if (!ensureGameRunning()) return;
+        if (!ensureGameRunning() || !ensureNotReviewing()) return;
         if (status != GameStatus.ONGOING) {
             String msg = "对局已结束，无需认负。";
-            System.out.println(msg);
+            print(msg);
             lastActionSuccess = false;
             lastActionMessage = msg;
             return;
@@ -301,9 +364,11 @@ public class GameEngine {
             status = GameStatus.BLACK_WIN;
             lastActionMessage = "白方投子认负，黑胜。";
         }
+        GameStatus result = status;
+        writeJournal(j -> j.resign(result));
         lastActionSuccess = true;
-        System.out.println(lastActionMessage);
-        board.display(showHint);
+        print(lastActionMessage);
+        display();
     }
 
 
@@ -327,9 +392,39 @@ public class GameEngine {
 //            System.out.println("保存失败：" + e.getMessage());
 //        }
 //    }
-    //将当前棋局存储到文件中
+    //将当前棋局存储到文件中：默认为二进制格式（GameRecord，含完整着法，读取后可以一直悔棋），
+    //文件名以 .sgf 结尾时保存为 SGF 棋谱，以 .txt 结尾时保存为旧的文本格式
     public void saveToFile(String filename) {
         if (!ensureGameRunning()) return;
+        if (filename.endsWith(".txt")) {
+            saveAsText(filename);
+            return;
+        }
+        try {
+            if (isSgf(filename)) {
+                try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    SgfWriter writer = new SgfWriter(channel);
+                    writer.write(toRecord());
+                    writer.flush();
+                }
+            } else {
+                toRecord().write(filename);
+            }
+            String msg = "已将当前对局保存到文件：" + filename;
+            print(msg);
+            lastActionSuccess = true;
+            lastActionMessage = msg;
+        } catch (IOException e) {
+            String msg = "保存失败：" + e.getMessage();
+            print(msg);
+            lastActionSuccess = false;
+            lastActionMessage = msg;
+        }
+    }
+
+    //旧的文本格式：每行一排棋子，最后一行为着法记录
+    private void saveAsText(String filename) {
         try (PrintWriter out = new PrintWriter(new FileWriter(filename))) {
             out.println(gameType);
             out.println(board.getSize());
@@ -343,14 +438,20 @@ public class GameEngine {
                 }
                 out.println(sb.toString());
             }
+            //着法记录（从开局起依次的点编号，虚着为 -1），旧版读取时忽略，开局库生成器据此重放
+            StringBuilder moves = new StringBuilder("MOVES");
+            for (int p : getMoveHistory()) {
+                moves.append(' ').append(p);
+            }
+            out.println(moves);
             String msg = "已将当前局面保存到文件：" + filename;
-            System.out.println(msg);
+            print(msg);
             lastActionSuccess = true;
             lastActionMessage = msg;
             //一旦存储出现问题，进行报错处理
         } catch (IOException e) {
             String msg = "保存失败：" + e.getMessage();
-            System.out.println(msg);
+            print(msg);
             lastActionSuccess = false;
             lastActionMessage = msg;
         }
@@ -407,8 +508,30 @@ public class GameEngine {
 //            System.out.println("读取存档失败：" + e.getMessage());
 //        }
 //    }
-    //从文件中读取存储的棋局状态
+    //从文件中读取存储的棋局状态：二进制存档和 SGF 棋谱（棋谱集取第一局）按着法重放，否则按旧的文本格式只读局面
     public void loadFromFile(String filename) {
+        try {
+            if (isSgf(filename)) {
+                try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+                    GameRecord record = new SgfReader(channel).next();
+                    if (record == null) {
+                        throw new IOException("文件中没有对局");
+                    }
+                    loadRecord(record, 0, "已从文件读取对局：" + filename);
+                }
+                return;
+            }
+            if (GameRecord.isRecordFile(filename)) {
+                loadRecord(GameRecord.read(filename), 0, "已从文件读取对局：" + filename);
+                return;
+            }
+        } catch (IOException e) {
+            String msg = "读取存档失败：" + e.getMessage();
+            print(msg);
+            lastActionSuccess = false;
+            lastActionMessage = msg;
+            return;
+        }
         try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
             String typeLine = br.readLine();
             String sizeLine = br.readLine();
@@ -417,7 +540,7 @@ public class GameEngine {
             //如果读取文件出先问题，设置系统动作未完成
             if (typeLine == null || sizeLine == null || currentPlayerLine == null || statusLine == null) {
                 String msg = "存档文件格式不合法。";
-                System.out.println(msg);
+                print(msg);
                 lastActionSuccess = false;
                 lastActionMessage = msg;
                 return;
@@ -432,7 +555,7 @@ public class GameEngine {
                 String row = br.readLine();
                 if (row == null || row.length() < size) {
                     String msg = "存档文件数据不完整。";
-                    System.out.println(msg);
+                    print(msg);
                     lastActionSuccess = false;
                     lastActionMessage = msg;
                     return;
@@ -453,38 +576,590 @@ public class GameEngine {
             } else {
                 this.rule = new GoRule();
             }
+            this.computer = null;
             this.board = newBoard;
             this.currentPlayer = cur;
             this.status = stat;
             this.history.clear();
-            saveToHistory();
+            this.captureTop = 0;
+            this.undoCount = 0;
+            //旧存档没有着法记录，之后的着法从读到的局面开始记
+            this.setupBoard = newBoard.clone();
+            this.setupPlayer = cur;
+            this.review = null;
+            writeJournal(j -> j.checkpoint(toRecord(), undoCount));
 
             String msg = "已从文件读取局面：" + filename;
-            System.out.println(msg);
+            print(msg);
             lastActionSuccess = true;
             lastActionMessage = msg;
 
-            board.display(showHint);
+            display();
+            playComputerTurns();
         } catch (IOException | IllegalArgumentException e) {
             String msg = "读取存档失败：" + e.getMessage();
-            System.out.println(msg);
+            print(msg);
+            lastActionSuccess = false;
+            lastActionMessage = msg;
+        }
+    }
+
+
+    //当前对局的二进制存档记录，五子棋的劫规则、计分规则和贴目取默认值
+    private GameRecord toRecord() {
+        byte[] setup = null;
+        if (setupBoard != null) {
+            setup = new byte[setupBoard.getPointCount()];
+            for (int p = 0; p < setup.length; p++) {
+                setup[p] = (byte) setupBoard.get(p).ordinal();
+            }
+        }
+        GoRule go = rule instanceof GoRule ? (GoRule) rule : new GoRule();
+        return new GameRecord(gameType, board.getSize(), currentPlayer, status, setup, setupPlayer,
+                go.getKoRule(), go.getScoringRule(), rule instanceof GoRule ? go.getKomi() : 0, getMoveHistory());
+    }
+
+    //GameSessionManager 换出空闲对局时保存的状态：完整记录加上已用的悔棋次数
+    GameRecord exportRecord() {
+        return toRecord();
+    }
+
+    int getUndoCount() {
+        return undoCount;
+    }
+
+    //换入：按记录重放恢复对局，悔棋次数接着算，不因换出换入而重新计数
+    void importRecord(GameRecord record, int undoCount) {
+        loadRecord(record, undoCount, "已恢复对局");
+    }
+
+    //能否换出：电脑玩家、走子日志、开局库、通知、复盘位置只存在于引擎对象里，记录不下来，有这些设置时不能换出
+    boolean isDetachable() {
+        for (int i = 0; i < computerSide.length; i++) {
+            if (computerSide[i] || assignedPlayer[i] != null) return false;
+        }
+        return journal == null && openingBook == null && moveListener == null && review == null;
+    }
+
+    boolean isShowHint() {
+        return showHint;
+    }
+
+    //换入后恢复换出前的设置和最近一次操作的结果，调用者读到的还是换出前那次操作的结果
+    void restoreSettings(boolean showHint, String message, boolean success) {
+        this.showHint = showHint;
+        lastActionMessage = message;
+        lastActionSuccess = success;
+    }
+
+    //按存档的规则从起始局面重放全部着法，每一步照常记入历史，劫和连续虚着数随之恢复，读取后可以一直悔棋到起始局面
+    //undoCount 为已用的悔棋次数：读档从 0 算起，从走子日志恢复、会话换入时接着算
+    private void loadRecord(GameRecord record, int undoCount, String message) {
+        if (!isReplayable(record)) {
+            String msg = "读取存档失败：存档中的着法不合法。";
+            print(msg);
+            lastActionSuccess = false;
+            lastActionMessage = msg;
+            return;
+        }
+        int size = record.getSize();
+        Board newBoard = new Board(size);
+        for (int p = 0; p < newBoard.getPointCount(); p++) {
+            newBoard.set(p, record.getSetup(p));
+        }
+        this.gameType = record.getGameType();
+        this.rule = newRule(record);
+        this.computer = null;
+        this.board = newBoard;
+        this.setupBoard = record.hasSetup() ? newBoard.clone() : null;
+        this.setupPlayer = record.getSetupPlayer();
+        this.review = null;
+        this.currentPlayer = setupPlayer;
+        this.status = GameStatus.ONGOING;
+        this.history.clear();
+        this.captureTop = 0;
+        this.undoCount = undoCount;
+        replaying = true;
+        for (int p : record.getMoves()) {
+            int passesBefore = rule.getConsecutivePasses();
+            RuleStrategy.MoveResult result = p == GameMemento.PASS ? rule.pass(board, currentPlayer)
+                    : rule.placePiece(board, p / size, p % size, currentPlayer);
+            saveToHistory(p, passesBefore);
+            status = result.getStatus();
+            if (status == GameStatus.ONGOING) {
+                currentPlayer = currentPlayer.opposite();
+            }
+        }
+        //认负结束的对局没有对应的着法，以存档中的状态为准
+        if (status == GameStatus.ONGOING) {
+            status = record.getStatus();
+        }
+        currentPlayer = record.getCurrentPlayer();
+        replaying = false;
+        writeJournal(j -> j.checkpoint(toRecord(), undoCount));
+
+        String msg = message + "（共 " + history.size() + " 步）";
+        print(msg);
+        lastActionSuccess = true;
+        lastActionMessage = msg;
+
+        display();
+        playComputerTurns();
+    }
+
+    //先在草稿棋盘上重放一遍，确认每一步都合法，不会读到一半才失败、破坏当前对局
+    private static boolean isReplayable(GameRecord record) {
+        int size = record.getSize();
+        Board scratch = new Board(size);
+        for (int p = 0; p < scratch.getPointCount(); p++) {
+            scratch.set(p, record.getSetup(p));
+        }
+        RuleStrategy scratchRule = newRule(record);
+        Piece side = record.getSetupPlayer();
+        GameStatus result = GameStatus.ONGOING;
+        for (int p : record.getMoves()) {
+            if (result != GameStatus.ONGOING) return false;
+            if (p != GameMemento.PASS && (p < 0 || p >= scratch.getPointCount())) return false;
+            RuleStrategy.MoveResult r = p == GameMemento.PASS ? scratchRule.pass(scratch, side)
+                    : scratchRule.placePiece(scratch, p / size, p % size, side);
+            if (!r.isSuccess()) return false;
+            result = r.getStatus();
+            side = side.opposite();
+        }
+        return true;
+    }
+
+    private static boolean isSgf(String filename) {
+        return filename.regionMatches(true, filename.length() - 4, ".sgf", 0, 4);
+    }
+
+    private static RuleStrategy newRule(GameRecord record) {
+        return record.getGameType() == GameType.GOMOKU ? new GomokuRule()
+                : new GoRule(record.getKoRule(), record.getScoringRule(), record.getKomi());
+    }
+
+    //复盘：显示第 n 步之后的局面（0 为起始局面），前后任意跳转，对局本身不变；
+    //n 等于已下步数时结束复盘、回到最新局面继续对局
+    public void gotoMove(int n) {
+        if (!ensureGameRunning()) return;
+        int total = history.size();
+        if (n < 0 || n > total) {
+            String msg = "步数必须在 0~" + total + " 之间。";
+            print(msg);
             lastActionSuccess = false;
             lastActionMessage = msg;
+            return;
+        }
+        if (n == total) {
+            review = null;
+            lastActionMessage = "已回到最新局面（共 " + total + " 步）。";
+            lastActionSuccess = true;
+            print(lastActionMessage);
+            display();
+            playComputerTurns();
+            return;
+        }
+        //第一次跳转时按历史生成复盘，之后对局不会变（复盘中不能落子），一直沿用
+        if (review == null) {
+            Board start = setupBoard != null ? setupBoard : new Board(board.getSize());
+            review = new GameReplay(start, history.descendingIterator(), total, currentPlayer, status);
+        }
+        review.seek(n);
+        String where;
+        if (n == 0) {
+            where = "起始局面";
+        } else {
+            int p = review.getPoint(n - 1);
+            where = review.getPlayer(n - 1) + (p == GameMemento.PASS ? " 虚着" : " 落子 " + pointName(p));
+        }
+        lastActionMessage = "复盘：第 " + n + " / " + total + " 步（" + where + "）";
+        lastActionSuccess = true;
+        print(lastActionMessage);
+        display();
+    }
+
+    //已下的步数（含虚着）
+    public int getMoveCount() {
+        return history.size();
+    }
+
+    //提示：五子棋为当前行棋方先找连续冲四（VCF），找不到再找连续威胁（VCT）；
+    //围棋列出能征吃 / 枷吃的对方棋块和己方有危险的棋块
+    public void hint() {
+        if (!ensureGameRunning()) return;
+        if (status != GameStatus.ONGOING) {
+            lastActionSuccess = false;
+            lastActionMessage = "对局已结束。";
+        } else if (gameType == GameType.GO) {
+            lastActionSuccess = true;
+            lastActionMessage = goHint();
+        } else {
+            if (solver == null) {
+                solver = new GomokuSolver(SOLVER_MEGABYTES);
+            }
+            GomokuSolver.Mode mode = GomokuSolver.Mode.VCF;
+            GomokuSolver.Result result = solver.solve(board, currentPlayer, mode, HINT_MAX_NODES, HINT_MILLIS);
+            if (!result.isProven()) {
+                mode = GomokuSolver.Mode.VCT;
+                result = solver.solve(board, currentPlayer, mode, HINT_MAX_NODES, HINT_MILLIS);
+            }
+            lastActionSuccess = true;
+            if (result.isProven()) {
+                StringBuilder sb = new StringBuilder(currentPlayer + " 有必胜（" + mode + "）：");
+                int size = board.getSize();
+                int[] line = result.getLine();
+                for (int i = 0; i < line.length; i++) {
+                    if (i > 0) sb.append(" → ");
+                    sb.append('(').append(line[i] / size + 1).append(',').append(line[i] % size + 1).append(')');
+                }
+                lastActionMessage = sb.toString();
+            } else {
+                lastActionMessage = "没有找到 " + currentPlayer + " 的必胜手顺。";
+            }
+        }
+        print(lastActionMessage);
+    }
+
+    //逐块检查不超过 2 口气的棋：对方的能否吃掉，己方的会不会被吃、能否逃出
+    private String goHint() {
+        if (tactics == null) {
+            tactics = new GoTactics();
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int p = 0, n = board.getPointCount(); p < n; p++) {
+            Piece c = board.get(p);
+            if (c == Piece.EMPTY || tactics.chainHead(board, p) != p || tactics.liberties(board, p) > 2) continue;
+            if (!tactics.isCapturable(board, p)) continue;
+            if (c == currentPlayer.opposite()) {
+                sb.append("\n可以在 ").append(pointName(tactics.getLastMove())).append(" 吃掉 ")
+                        .append(pointName(p)).append(" 处的棋");
+            } else if (tactics.canEscape(board, p) && tactics.getLastMove() >= 0) {
+                sb.append('\n').append(pointName(p)).append(" 处的棋有危险，可以在 ")
+                        .append(pointName(tactics.getLastMove())).append(" 逃出");
+            } else {
+                sb.append('\n').append(pointName(p)).append(" 处的棋有危险，已经逃不出");
+            }
+        }
+        return sb.length() == 0 ? "没有发现能吃的棋或有危险的棋。" : currentPlayer + " 的战术提示：" + sb;
+    }
+
+    //点编号转成界面上的坐标（从 1 开始）
+    private String pointName(int p) {
+        int size = board.getSize();
+        return "(" + (p / size + 1) + "," + (p % size + 1) + ")";
+    }
+
+    //设置 side 一方是否由电脑执子；轮到电脑时立即行棋
+    public void setComputerPlayer(Piece side, boolean enabled) {
+        computerSide[side.ordinal()] = enabled;
+        String sideStr = side == Piece.BLACK ? "黑" : "白";
+        lastActionMessage = "电脑执" + sideStr + "已" + (enabled ? "开启" : "关闭") + "。";
+        lastActionSuccess = true;
+        print(lastActionMessage);
+        playComputerTurns();
+    }
+
+    //只记录双方是否由电脑执子，不立即行棋，供开局前设置使用
+    public void setComputerSides(boolean black, boolean white) {
+        computerSide[Piece.BLACK.ordinal()] = black;
+        computerSide[Piece.WHITE.ordinal()] = white;
+    }
+
+    //为 side 一方指定电脑玩家（例如自对弈时双方使用不同的引擎或参数），player 为 null 时该方改回由人执子
+    //只记录不立即行棋，供开局前设置使用；换棋类时需要重新指定
+    public void setComputerPlayer(Piece side, ComputerPlayer player) {
+        assignedPlayer[side.ordinal()] = player;
+        computerSide[side.ordinal()] = player != null;
+    }
+
+    public boolean isComputerPlayer(Piece side) {
+        return computerSide[side.ordinal()];
+    }
+
+    private boolean isComputer(Piece side) {
+        return side != null && computerSide[side.ordinal()];
+    }
+
+    //只要对局在进行且轮到电脑执子的一方，就让电脑连续行棋
+    //电脑的落子同样经过 move / pass，这两个方法末尾的再次调用由 computerThinking 挡住，不会递归
+    private void playComputerTurns() {
+        if (computerThinking || board == null || review != null) return;
+        computerThinking = true;
+        try {
+            while (status == GameStatus.ONGOING && isComputer(currentPlayer)) {
+                Piece mover = currentPlayer;
+                ComputerPlayer player = assignedPlayer[mover.ordinal()];
+                if (player == null) {
+                    if (computer == null) {
+                        computer = createComputerPlayer(gameType);
+                    }
+                    player = computer;
+                }
+                int p = bookMove();
+                boolean fromBook = p >= 0;
+                if (!fromBook) {
+                    p = player.chooseMove(board, rule, mover);
+                }
+                if (p == GameMemento.PASS) {
+                    pass();
+                } else {
+                    int size = board.getSize();
+                    move(p / size + 1, p % size + 1);
+                }
+                if (!lastActionSuccess) return;
+                String where = p == GameMemento.PASS ? "虚着" : "落子 (" + (p / board.getSize() + 1) + "," + (p % board.getSize() + 1) + ")";
+                String prefix = player.getName() + "（" + mover + "）" + where + "。";
+                if (!quiet) {
+                    String stats = fromBook ? "开局库" : player.getStatistics();
+                    print(stats.isEmpty() ? prefix : prefix + "（" + stats + "）");
+                }
+                lastActionMessage = prefix + lastActionMessage;
+            }
+        } finally {
+            computerThinking = false;
         }
     }
 
+    //开局库中当前局面的着法（按权重随机），没有开局库、库中没有或着法不合法时返回 -1
+    private int bookMove() {
+        if (openingBook == null || openingBook.getGameType() != gameType) return -1;
+        int p = openingBook.pickMove(board, currentPlayer, Math.random());
+        int size = board.getSize();
+        return p >= 0 && rule.isLegal(board, p / size, p % size, currentPlayer) ? p : -1;
+    }
+
+    //读取开局库，之后电脑在库中有的局面直接按库落子；filename 为 null 时关闭开局库
+    public void loadOpeningBook(String filename) {
+        if (filename == null) {
+            openingBook = null;
+            lastActionSuccess = true;
+            lastActionMessage = "开局库已关闭。";
+        } else {
+            try {
+                openingBook = OpeningBook.open(filename);
+                lastActionSuccess = true;
+                lastActionMessage = "已读取开局库：" + filename + "（" + openingBook.getGameType()
+                        + "，" + openingBook.size() + " 项）";
+            } catch (IOException e) {
+                lastActionSuccess = false;
+                lastActionMessage = "读取开局库失败：" + e.getMessage();
+            }
+        }
+        print(lastActionMessage);
+    }
+
+    //用 saveToFile 保存的对局生成开局库，每局收录前 maxPlies 步
+    public void buildOpeningBook(GameType type, String output, String[] savedGames, int maxPlies) {
+        OpeningBookBuilder builder = new OpeningBookBuilder(type, maxPlies);
+        int skipped = 0;
+        try {
+            for (String file : savedGames) {
+                try {
+                    if (isSgf(file)) {
+                        if (builder.addSgfFile(file) == 0) skipped++;
+                    } else if (!builder.addSavedGame(file)) {
+                        skipped++;
+                    }
+                } catch (IOException e) {
+                    skipped++;//读不到的文件跳过，不影响其他对局
+                }
+            }
+            int count = builder.write(output);
+            lastActionSuccess = true;
+            lastActionMessage = "开局库已写入 " + output + "：收录 " + builder.getGameCount() + " 局，"
+                    + count + " 项" + (skipped > 0 ? "，跳过 " + skipped + " 个文件" : "") + "。";
+        } catch (IOException e) {
+            lastActionSuccess = false;
+            lastActionMessage = "生成开局库失败：" + e.getMessage();
+        }
+        print(lastActionMessage);
+    }
+
+    //按棋类创建电脑玩家；五子棋电脑共用引擎的置换表，换棋盘、换对局后已有的结果仍可命中
+    private ComputerPlayer createComputerPlayer(GameType type) {
+        if (type == GameType.GOMOKU) {
+            if (table == null) {
+                table = new TranspositionTable(TABLE_MEGABYTES);
+            }
+            return new GomokuAI(COMPUTER_THINK_MILLIS, table);
+        }
+        return new GoMcts();
+    }
+
+    //把规则返回的结果码转换成提示文字，只在需要显示时调用，规则本身不拼接字符串
+    private String describe(RuleStrategy.MoveResult result, Piece player) {
+        RuleStrategy.MoveCode code = result.getCode();
+        switch (code) {
+            case FIVE_IN_ROW:
+            case PASSED:
+                return String.format(code.getMessage(), player);
+            case SCORED:
+                GoRule go = (GoRule) rule;
+                String detail = code.getMessage() + "黑 " + go.getLastScore(Piece.BLACK)
+                        + "，白 " + go.getLastScore(Piece.WHITE) + "（另贴 " + go.getKomi() + " 目）";
+                double diff = go.getLastScore();
+                if (diff > 0) return detail + "，黑胜 " + diff + " 目。";
+                if (diff < 0) return detail + "，白胜 " + (-diff) + " 目。";
+                return detail + "，和棋。";
+            default:
+                return code.getMessage();
+        }
+    }
 
     public void setShowHint(boolean showHint) {
         this.showHint = showHint;
-        System.out.println("操作提示已 " + (showHint ? "开启" : "关闭") + "。");
+        print("操作提示已 " + (showHint ? "开启" : "关闭") + "。");
+        if (board != null) {
+            display();
+        }
+    }
+
+    //开启走子日志，此后每一步落子、虚着、悔棋、认负都追加到 filename；
+    //日志里已有对局（上次异常退出时留下的）时先恢复它，含全部历史，否则从当前对局（如果有）开始记录。
+    //windowMillis 为落盘窗口：写入后最多这么久一定 force 到磁盘，0 表示每步都立即 force
+    public void openJournal(String filename, long windowMillis) {
+        closeJournal();
+        MoveJournal opened = null;
+        MoveJournal.Recovered recovered;
+        try {
+            opened = MoveJournal.open(filename, windowMillis);
+            recovered = opened.recover();
+        } catch (IOException | RuntimeException e) {
+            if (opened != null) {
+                try {
+                    opened.close();
+                } catch (IOException ignored) {
+                    //已经在报告打开失败
+                }
+            }
+            String msg = "打开走子日志失败：" + e.getMessage();
+            print(msg);
+            lastActionSuccess = false;
+            lastActionMessage = msg;
+            return;
+        }
+        journal = opened;
+        if (recovered != null) {
+            //恢复后重写起点记录，悔棋等抵消掉的记录不再保留
+            loadRecord(recovered.getRecord(), recovered.getUndoCount(), "已从走子日志恢复对局：" + filename);
+            return;
+        }
         if (board != null) {
-            board.display(showHint);
+            writeJournal(j -> j.checkpoint(toRecord(), undoCount));
+            if (journal == null) return;//写起点记录失败，writeJournal 已经提示
+        }
+        String msg = "已开启走子日志：" + filename;
+        print(msg);
+        lastActionSuccess = true;
+        lastActionMessage = msg;
+    }
+
+    //关闭走子日志，还没落盘的记录先 force
+    public void closeJournal() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            print("关闭走子日志失败：" + e.getMessage());
+        }
+        journal = null;
+    }
+
+    //写走子日志；写不进去时关闭日志并提示，对局本身照常进行
+    private void writeJournal(JournalWrite write) {
+        if (journal == null || replaying) return;
+        try {
+            write.to(journal);
+        } catch (IOException e) {
+            closeJournal();
+            String msg = "写入走子日志失败，日志已关闭：" + e.getMessage();
+            print(msg);
+            lastActionSuccess = false;
+            lastActionMessage = msg;
+        }
+    }
+
+    private interface JournalWrite {
+        void to(MoveJournal journal) throws IOException;
+    }
+
+    //设置每步成功落子 / 虚着后、轮到电脑思考之前调用的通知，在调用 move / pass 的线程上执行
+    public void setMoveListener(Runnable listener) {
+        this.moveListener = listener;
+    }
+
+    private void notifyMove() {
+        if (moveListener != null && status == GameStatus.ONGOING && isComputer(currentPlayer)) {
+            moveListener.run();
+        }
+    }
+
+    //当前状态的不可变快照，供其他线程（如界面）读取
+    public GameSnapshot snapshot() {
+        if (board == null) {
+            return new GameSnapshot(null, 0, new byte[0], new boolean[0], null, null,
+                    lastActionMessage, lastActionSuccess, 0, 0, false);
+        }
+        int n = board.getPointCount();
+        byte[] cells = new byte[n];
+        boolean[] legal = new boolean[n];
+        if (review != null) {
+            //复盘中只显示棋子，不能落子
+            Board shown = review.getBoard();
+            for (int p = 0; p < n; p++) {
+                cells[p] = (byte) shown.get(p).ordinal();
+            }
+            return new GameSnapshot(gameType, board.getSize(), cells, legal, review.getCurrentPlayer(),
+                    review.getStatus(), lastActionMessage, lastActionSuccess, history.size(),
+                    review.getPosition(), false);
+        }
+        for (int p = 0; p < n; p++) {
+            cells[p] = (byte) board.get(p).ordinal();
+        }
+        if (status == GameStatus.ONGOING) {
+            int[] moves = new int[n];
+            int count = rule.legalMoves(board, currentPlayer, moves);
+            for (int i = 0; i < count; i++) {
+                legal[moves[i]] = true;
+            }
+        }
+        return new GameSnapshot(gameType, board.getSize(), cells, legal, currentPlayer, status,
+                lastActionMessage, lastActionSuccess, history.size(), history.size(),
+                status == GameStatus.ONGOING && isComputer(currentPlayer));
+    }
+
+    //安静模式下不输出任何内容，操作结果仍记录在 lastActionMessage 中
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    private void print(String msg) {
+        if (!quiet) {
+            System.out.println(msg);
         }
     }
 
+    //复盘中显示复盘的局面
+    private void display() {
+        if (!quiet) {
+            (review != null ? review.getBoard() : board).display(showHint);
+        }
+    }
+
+    //复盘中不能改动对局，先回到最新局面
+    private boolean ensureNotReviewing() {
+        if (review == null) return true;
+        String msg = "正在复盘第 " + review.getPosition() + " 步，回到最新局面（第 " + history.size()
+                + " 步）后才能继续对局。";
+        print(msg);
+        lastActionSuccess = false;
+        lastActionMessage = msg;
+        return false;
+    }
+
     private boolean ensureGameRunning() {
         if (board == null) {
-            System.out.println("当前没有进行中的对局，请先使用 start 命令开始游戏。");
+            print("当前没有进行中的对局，请先使用 start 命令开始游戏。");
             return false;
         }
         return true;
@@ -508,6 +1183,28 @@ public class GameEngine {
         return gameType;
     }
 
+    //只读判断当前玩家能否在 (x,y)（坐标从 1 开始）落子，不改变棋局，供界面提示使用
+    public boolean isLegalMove(int x1Based, int y1Based) {
+        if (board == null || status != GameStatus.ONGOING) return false;
+        return rule.isLegal(board, x1Based - 1, y1Based - 1, currentPlayer);
+    }
+
+    //从开局起依次的着法（点编号 x * size + y，虚着为 GameMemento.PASS）
+    public int[] getMoveHistory() {
+        int[] moves = new int[history.size()];
+        int i = 0;
+        for (Iterator<GameMemento> it = history.descendingIterator(); it.hasNext(); ) {
+            moves[i++] = it.next().getPoint();
+        }
+        return moves;
+    }
+
+    //当前局面（棋子 + 行棋方）的 Zobrist 哈希，可作为置换表、重复局面检测等的键；未开局时返回 0
+    public long getPositionHash() {
+        if (board == null) return 0L;
+        return board.getHash(currentPlayer);
+    }
+
     //————————————————————————————————————————————————————————————————————————
     // 最近一次操作（落子 / pass / resign）的结果
     private String lastActionMessage = "";
@@ -522,4 +1219,10 @@ public class GameEngine {
         return lastActionSuccess;
     }
 
+    //命令执行中途抛出异常时，把最近一次操作记为失败，界面据此提示而不是沿用上一次的结果
+    void setActionFailed(String message) {
+        lastActionSuccess = false;
+        lastActionMessage = message;
+    }
+
 }
@@ -2,25 +2,34 @@ package boardgame;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
 
 //窗口管理，整个游戏窗口的布局和控制逻辑
 public class GameFrame extends JFrame {
 
-    //维护一个游戏引擎
-    private final GameEngine engine;
+    //游戏引擎的异步命令层，界面不直接调用引擎
+    private final EngineExecutor executor;
     //维护一个画板
     private final BoardPanel boardPanel;
     //标签，控制当前执棋手
     private final JLabel statusLabel;
     //下拉框，选择游戏类型
     private final JComboBox<String> gameTypeBox;
+    //下拉框，选择对手
+    private final JComboBox<String> opponentBox;
     //数字输入框
     private final JSpinner sizeSpinner;
+    //复盘滑块：拖到第几步就显示第几步之后的局面，拖到最右回到最新局面
+    private final JSlider moveSlider;
+    private final JLabel moveLabel;
+    //正在按快照设置滑块，这时的变化不是用户拖动
+    private boolean updatingSlider = false;
+    //还没执行的复盘跳转目标，没有为 -1；拖动时只排一条命令，执行时取最新的目标
+    private final AtomicInteger seekTarget = new AtomicInteger(-1);
 
     public GameFrame(GameEngine engine) {
         super("棋类对战平台");
-        this.engine = engine;
+        this.executor = new EngineExecutor(engine);
 
         // 窗口基础设置
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -31,7 +40,7 @@ public class GameFrame extends JFrame {
         setLayout(new BorderLayout());
 
         // === 中间棋盘面板 ===
-        boardPanel = new BoardPanel(engine);
+        boardPanel = new BoardPanel(executor);
         add(boardPanel, BorderLayout.CENTER);
 
         // === 上方控制条 ===
@@ -40,6 +49,8 @@ public class GameFrame extends JFrame {
 
         //下拉窗口选择游戏类型
         gameTypeBox = new JComboBox<>(new String[]{"五子棋（Gomoku）", "围棋（Go）"});
+        //选择双人对弈或与电脑对弈
+        opponentBox = new JComboBox<>(new String[]{"双人对弈", "电脑执白", "电脑执黑"});
         //允许选择棋盘大小
         sizeSpinner = new JSpinner(new SpinnerNumberModel(15, 8, 19, 1));
         JButton startButton = new JButton("开始游戏");
@@ -47,6 +58,7 @@ public class GameFrame extends JFrame {
         JButton undoButton = new JButton("悔棋");
         JButton passButton = new JButton("虚着（围棋）");
         JButton resignButton = new JButton("投子认负");
+        JButton hintButton = new JButton("提示");
         JButton saveButton = new JButton("保存局面");
         JButton loadButton = new JButton("读取局面");
 
@@ -54,20 +66,33 @@ public class GameFrame extends JFrame {
         topPanel.add(gameTypeBox);
         topPanel.add(new JLabel("棋盘大小:"));
         topPanel.add(sizeSpinner);
+        topPanel.add(opponentBox);
         topPanel.add(startButton);
         topPanel.add(restartButton);
         topPanel.add(undoButton);
         topPanel.add(passButton);
         topPanel.add(resignButton);
+        topPanel.add(hintButton);
         topPanel.add(saveButton);
         topPanel.add(loadButton);
 
         add(topPanel, BorderLayout.NORTH);
 
-        // === 底部状态栏 ===
+        // === 底部复盘滑块 + 状态栏 ===
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        moveSlider = new JSlider(0, 0, 0);
+        moveSlider.setEnabled(false);
+        moveLabel = new JLabel("第 0 / 0 步");
+        moveLabel.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
+        JPanel sliderPanel = new JPanel(new BorderLayout());
+        sliderPanel.add(new JLabel(" 复盘:"), BorderLayout.WEST);
+        sliderPanel.add(moveSlider, BorderLayout.CENTER);
+        sliderPanel.add(moveLabel, BorderLayout.EAST);
+        bottomPanel.add(sliderPanel, BorderLayout.NORTH);
         statusLabel = new JLabel("请先在上方选择游戏并点击“开始游戏”。");
         statusLabel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
-        add(statusLabel, BorderLayout.SOUTH);
+        bottomPanel.add(statusLabel, BorderLayout.SOUTH);
+        add(bottomPanel, BorderLayout.SOUTH);
 
         // === 事件绑定 ===
         //为每个按钮添加点击事件监听器，监听按钮的点击事件，当用户点击按钮时相应的方法会被调用
@@ -83,19 +108,21 @@ public class GameFrame extends JFrame {
                 type = GameType.GO;
             }
 
-            engine.startGame(type, size);  // 调用 GameEngine 的 startGame 方法
-            updateStatus();  // 更新状态
-            boardPanel.repaint();  // 刷新棋盘显示
-
-            // 在 GameFrame 中处理弹窗显示游戏开始的信息
-            if (engine.wasLastActionSuccess()) {
-                JOptionPane.showMessageDialog(
-                        this,
-                        engine.getLastActionMessage(),
-                        "游戏开始",
-                        JOptionPane.INFORMATION_MESSAGE
-                );
-            }
+            int opponent = opponentBox.getSelectedIndex();
+            executor.submit(game -> {
+                game.setComputerSides(opponent == 2, opponent == 1);
+                game.startGame(type, size);  // 调用 GameEngine 的 startGame 方法
+            }, snapshot -> {
+                // 在 GameFrame 中处理弹窗显示游戏开始的信息
+                if (snapshot.wasLastActionSuccess()) {
+                    JOptionPane.showMessageDialog(
+                            this,
+                            snapshot.getLastActionMessage(),
+                            "游戏开始",
+                            JOptionPane.INFORMATION_MESSAGE
+                    );
+                }
+            });
         });
 
 //        restartButton.addActionListener(e -> {
@@ -104,17 +131,13 @@ public class GameFrame extends JFrame {
 //            boardPanel.repaint();
 //        });
         //重新开始按钮，增加弹窗机制
-        restartButton.addActionListener(e -> {
-            engine.restart();  // 调用 GameEngine 的 restart 方法
-            updateStatus();  // 更新状态
-            boardPanel.repaint();  // 刷新棋盘显示
-
+        restartButton.addActionListener(e -> executor.submit(GameEngine::restart, snapshot -> {
             // 在 GameFrame 中处理弹窗显示重新开始的信息
-            if (engine.wasLastActionSuccess()) {
+            if (snapshot.wasLastActionSuccess()) {
                 // 游戏重新开始成功，弹出提示框
                 JOptionPane.showMessageDialog(
                         this,
-                        engine.getLastActionMessage(),
+                        snapshot.getLastActionMessage(),
                         "游戏重新开始",
                         JOptionPane.INFORMATION_MESSAGE
                 );
@@ -122,12 +145,12 @@ public class GameFrame extends JFrame {
                 // 失败情况弹窗
                 JOptionPane.showMessageDialog(
                         this,
-                        engine.getLastActionMessage(),
+                        snapshot.getLastActionMessage(),
                         "操作失败",
                         JOptionPane.WARNING_MESSAGE
                 );
             }
-        });
+        }));
 
         //悔棋按钮
 //        undoButton.addActionListener(e -> {
@@ -136,15 +159,13 @@ public class GameFrame extends JFrame {
 //            boardPanel.repaint();
 //        });
         //悔棋按钮
-        undoButton.addActionListener(e -> {
-            engine.undo();
-
+        undoButton.addActionListener(e -> executor.submit(GameEngine::undo, snapshot -> {
             // 根据悔棋操作结果弹窗显示
-            if (!engine.wasLastActionSuccess()) {
+            if (!snapshot.wasLastActionSuccess()) {
                 // 如果悔棋失败，弹出失败提示框
                 JOptionPane.showMessageDialog(
                         this,
-                        engine.getLastActionMessage(),
+                        snapshot.getLastActionMessage(),
                         "操作失败",
                         JOptionPane.WARNING_MESSAGE
                 );
@@ -152,15 +173,12 @@ public class GameFrame extends JFrame {
                 // 如果悔棋成功，弹出成功提示框，显示谁进行了悔棋操作
                 JOptionPane.showMessageDialog(
                         this,
-                        engine.getLastActionMessage(),
+                        snapshot.getLastActionMessage(),
                         "悔棋成功",
                         JOptionPane.INFORMATION_MESSAGE
                 );
             }
-
-            updateStatus();  // 更新状态
-            boardPanel.repaint();  // 刷新棋盘显示
-        });
+        }));
 
 //        passButton.addActionListener(e -> {
 //            engine.pass();
@@ -172,72 +190,115 @@ public class GameFrame extends JFrame {
 //            updateStatus();
 //            boardPanel.repaint();
 //        });
-        //虚着按钮
-        passButton.addActionListener(e -> {
-            engine.pass();
-
-            if (!engine.wasLastActionSuccess()) {
-                // 虚着失败（例如在五子棋里pass，或者对局已结束），进行弹窗
-                JOptionPane.showMessageDialog(
-                        this,
-                        engine.getLastActionMessage(),
-                        "操作失败",
-                        JOptionPane.WARNING_MESSAGE
-                );
-            } else if (engine.getStatus() != GameStatus.ONGOING) {
-                // 虚着后触发终局（双方连续虚着）
+        //提示按钮：五子棋必胜手顺，围棋征吃与逃子
+        hintButton.addActionListener(e -> executor.submit(GameEngine::hint, snapshot ->
                 JOptionPane.showMessageDialog(
                         this,
-                        engine.getLastActionMessage() + "\n对局结束，状态：" + engine.getStatus(),
-                        "对局结束",
-                        JOptionPane.INFORMATION_MESSAGE
-                );
-            } else {
-                // 虚着成功但游戏未结束
-                JOptionPane.showMessageDialog(
-                        this,
-                        engine.getLastActionMessage(),
-                        "虚着成功",
-                        JOptionPane.INFORMATION_MESSAGE
-                );
-            }
+                        snapshot.getLastActionMessage(),
+                        snapshot.wasLastActionSuccess() ? "提示" : "操作失败",
+                        snapshot.wasLastActionSuccess() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE
+                )));
 
-            updateStatus();
-            boardPanel.repaint();
+        //虚着按钮
+        passButton.addActionListener(e -> {
+            if (!canPlay()) return;
+            executor.submit(GameEngine::pass, snapshot -> {
+                if (!snapshot.wasLastActionSuccess()) {
+                    // 虚着失败（例如在五子棋里pass，或者对局已结束），进行弹窗
+                    JOptionPane.showMessageDialog(
+                            this,
+                            snapshot.getLastActionMessage(),
+                            "操作失败",
+                            JOptionPane.WARNING_MESSAGE
+                    );
+                } else if (snapshot.getStatus() != GameStatus.ONGOING) {
+                    // 虚着后触发终局（双方连续虚着）
+                    JOptionPane.showMessageDialog(
+                            this,
+                            snapshot.getLastActionMessage() + "\n对局结束，状态：" + snapshot.getStatus(),
+                            "对局结束",
+                            JOptionPane.INFORMATION_MESSAGE
+                    );
+                } else {
+                    // 虚着成功但游戏未结束
+                    JOptionPane.showMessageDialog(
+                            this,
+                            snapshot.getLastActionMessage(),
+                            "虚着成功",
+                            JOptionPane.INFORMATION_MESSAGE
+                    );
+                }
+            });
         });
 
         //投子认负按钮
         resignButton.addActionListener(e -> {
-            engine.resign();
-            if (engine.getStatus() != GameStatus.ONGOING && engine.wasLastActionSuccess()) {
-                JOptionPane.showMessageDialog(
-                        this,
-                        engine.getLastActionMessage() + "\n对局结束，状态：" + engine.getStatus(),
-                        "对局结束",
-                        JOptionPane.INFORMATION_MESSAGE
-                );
-            } else if (!engine.wasLastActionSuccess()) {
-                JOptionPane.showMessageDialog(
-                        this,
-                        engine.getLastActionMessage(),
-                        "操作失败",
-                        JOptionPane.WARNING_MESSAGE
-                );
-            }
-            updateStatus();
-            boardPanel.repaint();
+            if (!canPlay()) return;
+            executor.submit(GameEngine::resign, snapshot -> {
+                if (snapshot.getStatus() != GameStatus.ONGOING && snapshot.wasLastActionSuccess()) {
+                    JOptionPane.showMessageDialog(
+                            this,
+                            snapshot.getLastActionMessage() + "\n对局结束，状态：" + snapshot.getStatus(),
+                            "对局结束",
+                            JOptionPane.INFORMATION_MESSAGE
+                    );
+                } else if (!snapshot.wasLastActionSuccess()) {
+                    JOptionPane.showMessageDialog(
+                            this,
+                            snapshot.getLastActionMessage(),
+                            "操作失败",
+                            JOptionPane.WARNING_MESSAGE
+                    );
+                }
+            });
         });
         //保存按钮
         saveButton.addActionListener(e -> handleSave());
         //加载按钮
-        loadButton.addActionListener(e -> {
-            handleLoad();
-            updateStatus();
-            boardPanel.repaint();
+        loadButton.addActionListener(e -> handleLoad());
+        //拖动复盘滑块（也可以用方向键）时跳到对应的步数
+        moveSlider.addChangeListener(e -> {
+            if (!updatingSlider) {
+                seek(moveSlider.getValue());
+            }
+        });
+
+        //引擎每次更新状态后，用新的快照重绘棋盘、刷新状态栏
+        executor.addListener(snapshot -> {
+            boardPanel.setSnapshot(snapshot);
+            updateSlider(snapshot);
+            updateStatus(snapshot);
         });
 
         // 初始状态
-        updateStatus();
+        updateStatus(executor.getSnapshot());
+    }
+
+    //电脑思考时不接受代替电脑的操作（虚着、认负）
+    private boolean canPlay() {
+        return !executor.isBusy() && !executor.getSnapshot().isComputerThinking();
+    }
+
+    //复盘跳转：已有跳转在排队时只更新目标，不再排新命令，拖得再快引擎线程上也最多一条
+    private void seek(int move) {
+        if (move == executor.getSnapshot().getDisplayedMove() && seekTarget.get() < 0) return;
+        if (seekTarget.getAndSet(move) >= 0) return;
+        executor.submit(game -> game.gotoMove(seekTarget.getAndSet(-1)), null);
+    }
+
+    //按快照更新滑块的范围和位置；拖动中、还有跳转没执行时不改位置，免得滑块被拉回去
+    private void updateSlider(GameSnapshot snapshot) {
+        updatingSlider = true;
+        try {
+            moveSlider.setMaximum(snapshot.getMoveCount());
+            if (!moveSlider.getValueIsAdjusting() && seekTarget.get() < 0) {
+                moveSlider.setValue(snapshot.getDisplayedMove());
+            }
+            moveSlider.setEnabled(snapshot.hasGame() && !snapshot.isComputerThinking());
+        } finally {
+            updatingSlider = false;
+        }
+        moveLabel.setText("第 " + snapshot.getDisplayedMove() + " / " + snapshot.getMoveCount() + " 步");
     }
 
     //开始游戏
@@ -252,9 +313,11 @@ public class GameFrame extends JFrame {
             type = GameType.GO;
         }
 
-        engine.startGame(type, size);
-        updateStatus();
-        boardPanel.repaint();
+        int opponent = opponentBox.getSelectedIndex();
+        executor.submit(game -> {
+            game.setComputerSides(opponent == 2, opponent == 1);
+            game.startGame(type, size);
+        }, null);
     }
 
     //    //保存按钮触发
@@ -272,8 +335,9 @@ public class GameFrame extends JFrame {
 //        }
 //    }
     //将棋局进行存储
+    //写文件在引擎线程上进行，磁盘慢时界面不卡顿
     private void handleSave() {
-        if (engine.getBoard() == null) {
+        if (!executor.getSnapshot().hasGame()) {
             JOptionPane.showMessageDialog(this, "当前没有进行中的对局，无法保存。");
             return;
         }
@@ -281,24 +345,24 @@ public class GameFrame extends JFrame {
         chooser.setDialogTitle("保存局面");
         int result = chooser.showSaveDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
-            File file = chooser.getSelectedFile();
-            engine.saveToFile(file.getAbsolutePath());
-
-            if (engine.wasLastActionSuccess()) {
-                JOptionPane.showMessageDialog(
-                        this,
-                        engine.getLastActionMessage(),
-                        "保存成功",
-                        JOptionPane.INFORMATION_MESSAGE
-                );
-            } else {
-                JOptionPane.showMessageDialog(
-                        this,
-                        engine.getLastActionMessage(),
-                        "保存失败",
-                        JOptionPane.WARNING_MESSAGE
-                );
-            }
+            String path = chooser.getSelectedFile().getAbsolutePath();
+            executor.submit(game -> game.saveToFile(path), snapshot -> {
+                if (snapshot.wasLastActionSuccess()) {
+                    JOptionPane.showMessageDialog(
+                            this,
+                            snapshot.getLastActionMessage(),
+                            "保存成功",
+                            JOptionPane.INFORMATION_MESSAGE
+                    );
+                } else {
+                    JOptionPane.showMessageDialog(
+                            this,
+                            snapshot.getLastActionMessage(),
+                            "保存失败",
+                            JOptionPane.WARNING_MESSAGE
+                    );
+                }
+            });
         }
     }
 
@@ -319,37 +383,36 @@ public class GameFrame extends JFrame {
         chooser.setDialogTitle("读取局面");
         int result = chooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
-            File file = chooser.getSelectedFile();
+            String path = chooser.getSelectedFile().getAbsolutePath();
             //调用加载函数
-            engine.loadFromFile(file.getAbsolutePath());
-
-            if (engine.wasLastActionSuccess()) {
-                JOptionPane.showMessageDialog(
-                        this,
-                        engine.getLastActionMessage(),
-                        "读取成功",
-                        JOptionPane.INFORMATION_MESSAGE
-                );
-            } else {
-                JOptionPane.showMessageDialog(
-                        this,
-                        engine.getLastActionMessage(),
-                        "读取失败",
-                        JOptionPane.WARNING_MESSAGE
-                );
-            }
+            executor.submit(game -> game.loadFromFile(path), snapshot -> {
+                if (snapshot.wasLastActionSuccess()) {
+                    JOptionPane.showMessageDialog(
+                            this,
+                            snapshot.getLastActionMessage(),
+                            "读取成功",
+                            JOptionPane.INFORMATION_MESSAGE
+                    );
+                } else {
+                    JOptionPane.showMessageDialog(
+                            this,
+                            snapshot.getLastActionMessage(),
+                            "读取失败",
+                            JOptionPane.WARNING_MESSAGE
+                    );
+                }
+            });
         }
     }
 
 
-    //更新状态
-    public void updateStatus() {
-        Board board = engine.getBoard();
-        GameStatus s = engine.getStatus();
-        GameType t = engine.getGameType();
-        Piece p = engine.getCurrentPlayer();
+    //按快照更新状态栏
+    private void updateStatus(GameSnapshot snapshot) {
+        GameStatus s = snapshot.getStatus();
+        GameType t = snapshot.getGameType();
+        Piece p = snapshot.getCurrentPlayer();
 
-        if (board == null || t == null) {
+        if (!snapshot.hasGame()) {
             statusLabel.setText("尚未开始对局。请选择类型与大小后点击“开始游戏”。");
             return;
         }
@@ -373,12 +436,15 @@ public class GameFrame extends JFrame {
                 statusText = s.toString();
         }
 
-        String turnText = (s == GameStatus.ONGOING)
-                ? ("当前轮到：" + (p == Piece.BLACK ? "黑方" : "白方"))
+        String turnText = snapshot.isReviewing()
+                ? "复盘中：第 " + snapshot.getDisplayedMove() + " / " + snapshot.getMoveCount() + " 步（拖到最右继续对局）"
+                : (s == GameStatus.ONGOING)
+                ? ("当前轮到：" + (p == Piece.BLACK ? "黑方" : "白方")
+                + (snapshot.isComputerThinking() ? "（电脑思考中…）" : ""))
                 : "对局已结束";
 
         statusLabel.setText("游戏类型：" + typeText +
-                "    棋盘：" + board.getSize() + "x" + board.getSize() +
+                "    棋盘：" + snapshot.getSize() + "x" + snapshot.getSize() +
                 "    状态：" + statusText +
                 "    " + turnText);
     }
@@ -1,18 +1,37 @@
 package boardgame;
 //游戏备忘录类
+//只记录一步棋的反向增量（落子点、被提的子、这一步之前的行棋方 / 状态 / 连续虚着数），
+//悔棋时由规则原地撤销，不再保存整盘棋的快照。
 public class GameMemento {
-    private final Board boardSnapshot;//当前棋盘的快照
-    private final Piece currentPlayer;//当前该谁落子
-    private final GameStatus status;//当前棋盘的状态
+    public static final int PASS = -1;//虚着没有落子点
 
-    public GameMemento(Board boardSnapshot, Piece currentPlayer, GameStatus status) {
-        this.boardSnapshot = boardSnapshot;
+    private final int point;//落子点编号 x * size + y，虚着为 PASS
+    private final Piece currentPlayer;//这一步之前该谁落子（即这一步的行棋方）
+    private final GameStatus status;//这一步之前棋局的状态
+    private final int previousPasses;//这一步之前的连续虚着数
+    //这一步提掉的子保存在 GameEngine 共享的提子缓冲区中：captureBuffer[captureOffset, captureOffset + capturedCount)
+    //缓冲区按栈方式追加、悔棋时截断，扩容后旧数组中已写入的部分不再被改写，所以引用旧数组的记录仍然有效
+    private final int[] captureBuffer;
+    private final int captureOffset;
+    private final int capturedCount;
+
+    public GameMemento(int point, Piece currentPlayer, GameStatus status, int previousPasses,
+                       int[] captureBuffer, int captureOffset, int capturedCount) {
+        this.point = point;
         this.currentPlayer = currentPlayer;
         this.status = status;
+        this.previousPasses = previousPasses;
+        this.captureBuffer = captureBuffer;
+        this.captureOffset = captureOffset;
+        this.capturedCount = capturedCount;
+    }
+
+    public int getPoint() {
+        return point;
     }
 
-    public Board getBoardSnapshot() {
-        return boardSnapshot;
+    public boolean isPass() {
+        return point == PASS;
     }
 
     public Piece getCurrentPlayer() {
@@ -22,4 +41,21 @@ public class GameMemento {
     public GameStatus getStatus() {
         return status;
     }
+
+    public int getPreviousPasses() {
+        return previousPasses;
+    }
+
+    public int getCapturedCount() {
+        return capturedCount;
+    }
+
+    public int getCaptured(int i) {
+        return captureBuffer[captureOffset + i];
+    }
+
+    //这一步的提子在共享缓冲区中的起始位置，悔棋时缓冲区截断到这里
+    public int getCaptureOffset() {
+        return captureOffset;
+    }
 }
@@ -0,0 +1,305 @@
+package boardgame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+//对局记录的二进制存档格式：起始局面 + 完整着法序列，读取时按规则重放，悔棋、劫、连续虚着数都随之恢复
+//文件布局（大端）：
+//  魔数 "BGSV"（4 字节）、版本号、棋类、棋盘大小、行棋方、对局状态、标志位、起始局面的行棋方（各 1 字节）、
+//  围棋的劫规则、计分规则（各 1 字节）、贴目（double）、着法数（变长整数）、
+//  [标志位 0 置位时] 起始局面，每点 2 比特（Piece 的 ordinal），
+//  着法，每步 bits 比特定长（bits 为能表示 0..size*size 的最少位数，size*size 表示虚着），
+//  最后是前面全部字节的 CRC32（4 字节）。
+//15 路五子棋一局几十步只有几十个字节，19 路围棋每步 9 比特。
+public final class GameRecord {
+    static final int MAGIC = 0x42475356;
+    static final int VERSION = 1;
+    private static final int FLAG_SETUP = 1;
+    private static final int HEADER_BYTES = 21;
+    private static final int MAX_FILE_BYTES = 1 << 20;
+    private static final Piece[] PIECES = Piece.values();
+
+    private final GameType gameType;
+    private final int size;
+    private final Piece currentPlayer;
+    private final GameStatus status;
+    private final byte[] setup;//起始局面每点的 Piece ordinal，从空棋盘开始时为 null
+    private final Piece setupPlayer;//起始局面的行棋方
+    private final GoRule.KoRule koRule;
+    private final GoScorer.ScoringRule scoringRule;
+    private final double komi;
+    private final int[] moves;//点编号，虚着为 GameMemento.PASS
+
+    public GameRecord(GameType gameType, int size, Piece currentPlayer, GameStatus status,
+                      byte[] setup, Piece setupPlayer, GoRule.KoRule koRule,
+                      GoScorer.ScoringRule scoringRule, double komi, int[] moves) {
+        this.gameType = gameType;
+        this.size = size;
+        this.currentPlayer = currentPlayer;
+        this.status = status;
+        this.setup = setup;
+        this.setupPlayer = setupPlayer;
+        this.koRule = koRule;
+        this.scoringRule = scoringRule;
+        this.komi = komi;
+        this.moves = moves;
+    }
+
+    public GameType getGameType() {
+        return gameType;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Piece getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public GameStatus getStatus() {
+        return status;
+    }
+
+    //是否从非空的起始局面开始（例如由旧的文本存档转来）
+    public boolean hasSetup() {
+        return setup != null;
+    }
+
+    //起始局面点 p 上的棋子
+    public Piece getSetup(int p) {
+        return setup == null ? Piece.EMPTY : PIECES[setup[p]];
+    }
+
+    public Piece getSetupPlayer() {
+        return setupPlayer;
+    }
+
+    public GoRule.KoRule getKoRule() {
+        return koRule;
+    }
+
+    public GoScorer.ScoringRule getScoringRule() {
+        return scoringRule;
+    }
+
+    public double getKomi() {
+        return komi;
+    }
+
+    public int[] getMoves() {
+        return moves.clone();
+    }
+
+    //同一起始局面和规则下换一组着法与终局状态的记录
+    GameRecord withMoves(int[] moves, GameStatus status) {
+        return new GameRecord(gameType, size, currentPlayer, status, setup, setupPlayer,
+                koRule, scoringRule, komi, moves);
+    }
+
+    //文件开头是否为本格式的魔数，用来与旧的文本存档区分
+    public static boolean isRecordFile(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(4);
+            readFully(channel, buf);
+            return buf.position() == 4 && buf.getInt(0) == MAGIC;
+        }
+    }
+
+    public void write(String filename) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(toBytes());
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        }
+    }
+
+    //编码为存档文件的完整内容（含魔数和校验和），GameDatabase 也用它存放每一局
+    public byte[] toBytes() {
+        int n = size * size;
+        int bits = moveBits(n);
+        int length = HEADER_BYTES + varintLength(moves.length)
+                + (setup != null ? (2 * n + 7) / 8 : 0) + (int) (((long) bits * moves.length + 7) / 8) + 4;
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        buf.putInt(MAGIC).put((byte) VERSION).put((byte) gameType.ordinal()).put((byte) size)
+                .put((byte) currentPlayer.ordinal()).put((byte) status.ordinal())
+                .put((byte) (setup != null ? FLAG_SETUP : 0)).put((byte) setupPlayer.ordinal())
+                .put((byte) koRule.ordinal()).put((byte) scoringRule.ordinal()).putDouble(komi);
+        putVarint(buf, moves.length);
+        if (setup != null) {
+            BitWriter w = new BitWriter(buf);
+            for (int p = 0; p < n; p++) {
+                w.write(setup[p], 2);
+            }
+            w.flush();
+        }
+        BitWriter w = new BitWriter(buf);
+        for (int p : moves) {
+            w.write(p == GameMemento.PASS ? n : p, bits);
+        }
+        w.flush();
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+        return buf.array();
+    }
+
+    //读取存档；格式、版本或校验和不对时抛出 IOException
+    public static GameRecord read(String filename) throws IOException {
+        ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES + 5 || length > MAX_FILE_BYTES) {
+                throw new IOException("Not a game record: " + filename);
+            }
+            buf = ByteBuffer.allocate((int) length);
+            readFully(channel, buf);
+        }
+        buf.flip();
+        return fromBytes(buf, filename);
+    }
+
+    //从 buf 的 position 到 limit 解码一局，source 用于错误信息
+    public static GameRecord fromBytes(ByteBuffer buf, String source) throws IOException {
+        int start = buf.position();
+        int end = buf.limit();
+        if (end - start < HEADER_BYTES + 5 || !buf.hasArray()) {
+            throw new IOException("Not a game record: " + source);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), buf.arrayOffset() + start, end - start - 4);
+        if (buf.getInt(start) != MAGIC || buf.getInt(end - 4) != (int) crc.getValue()) {
+            throw new IOException("Corrupt game record: " + source);
+        }
+        buf.position(start + 4);
+        if (buf.get() != VERSION) {
+            throw new IOException("Unsupported game record version: " + source);
+        }
+        try {
+            GameType type = GameType.values()[buf.get()];
+            int size = buf.get();
+            Piece current = PIECES[buf.get()];
+            GameStatus status = GameStatus.values()[buf.get()];
+            int flags = buf.get();
+            Piece setupPlayer = PIECES[buf.get()];
+            GoRule.KoRule koRule = GoRule.KoRule.values()[buf.get()];
+            GoScorer.ScoringRule scoringRule = GoScorer.ScoringRule.values()[buf.get()];
+            double komi = buf.getDouble();
+            int count = getVarint(buf);
+            if (size < 8 || size > 19 || count < 0 || count > MAX_FILE_BYTES * 8) {
+                throw new IOException("Corrupt game record: " + source);
+            }
+            int n = size * size;
+            byte[] setup = null;
+            if ((flags & FLAG_SETUP) != 0) {
+                setup = new byte[n];
+                BitReader r = new BitReader(buf);
+                for (int p = 0; p < n; p++) {
+                    setup[p] = (byte) r.read(2);
+                }
+            }
+            int bits = moveBits(n);
+            int[] moves = new int[count];
+            BitReader r = new BitReader(buf);
+            for (int i = 0; i < count; i++) {
+                int v = r.read(bits);
+                moves[i] = v == n ? GameMemento.PASS : v;
+            }
+            buf.position(end);
+            return new GameRecord(type, size, current, status, setup, setupPlayer, koRule, scoringRule, komi, moves);
+        } catch (RuntimeException e) {
+            //下标越界、数据提前结束等都说明数据已损坏
+            throw new IOException("Corrupt game record: " + source, e);
+        }
+    }
+
+    //读到缓冲区满或文件结束
+    private static void readFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) < 0) break;
+        }
+    }
+
+    //表示 0..n 需要的位数
+    private static int moveBits(int n) {
+        return 32 - Integer.numberOfLeadingZeros(n);
+    }
+
+    private static int varintLength(int v) {
+        int len = 1;
+        while ((v >>>= 7) != 0) {
+            len++;
+        }
+        return len;
+    }
+
+    private static void putVarint(ByteBuffer buf, int v) {
+        while ((v & ~0x7F) != 0) {
+            buf.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    private static int getVarint(ByteBuffer buf) {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = buf.get();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IllegalStateException("Varint too long");
+    }
+
+    //按位写入，高位在前，flush 时补齐到整字节
+    private static final class BitWriter {
+        private final ByteBuffer buf;
+        private long acc;
+        private int count;
+
+        BitWriter(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        void write(int value, int bits) {
+            acc = (acc << bits) | value;
+            count += bits;
+            while (count >= 8) {
+                count -= 8;
+                buf.put((byte) (acc >>> count));
+            }
+        }
+
+        void flush() {
+            if (count > 0) {
+                buf.put((byte) (acc << (8 - count)));
+                count = 0;
+            }
+        }
+    }
+
+    private static final class BitReader {
+        private final ByteBuffer buf;
+        private long acc;
+        private int count;
+
+        BitReader(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        int read(int bits) {
+            while (count < bits) {
+                acc = (acc << 8) | (buf.get() & 0xFF);
+                count += 8;
+            }
+            count -= bits;
+            return (int) (acc >>> count) & ((1 << bits) - 1);
+        }
+    }
+}
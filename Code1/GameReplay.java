@@ -0,0 +1,136 @@
+package boardgame;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+//复盘：对局的着法序列加上每 CHECKPOINT_INTERVAL 步一个棋盘检查点，可以在任意两步之间直接跳转
+//每步记下落子点、行棋方和提掉的子，前进时落子、拿掉提子，后退时反过来，都不经过规则；
+//跳到第 n 步时从离 n 最近的检查点（前后都可以）或当前位置出发，最多走 CHECKPOINT_INTERVAL / 2 步。
+//只读：跳转不影响对局本身，对局有新着法后需要重新生成。
+public class GameReplay {
+    static final int CHECKPOINT_INTERVAL = 16;
+    private static final Piece[] PIECES = Piece.values();
+
+    private final int count;
+    private final int[] points;//第 i 步的落子点，虚着为 GameMemento.PASS
+    private final byte[] movers;//第 i 步的行棋方（Piece ordinal）
+    private final byte[] statuses;//第 i 步之前的对局状态（GameStatus ordinal）
+    private final int[] captureStart;//第 i 步的提子为 captured[captureStart[i], captureStart[i + 1])
+    private int[] captured = new int[16];
+    private final Board[] checkpoints;//checkpoints[k] 为第 k * CHECKPOINT_INTERVAL 步之后的棋盘
+    private final Piece lastPlayer;//最后一步之后的行棋方
+    private final GameStatus lastStatus;//最后一步之后的对局状态
+    private Board board;
+    private int position;
+
+    //从起始局面和按先后顺序排列的 count 条对局记录生成，lastPlayer / lastStatus 为最后一步之后的行棋方和状态；生成后停在最后一步
+    GameReplay(Board start, Iterator<GameMemento> oldestFirst, int count, Piece lastPlayer, GameStatus lastStatus) {
+        this.count = count;
+        this.points = new int[count];
+        this.movers = new byte[count];
+        this.statuses = new byte[count];
+        this.captureStart = new int[count + 1];
+        this.checkpoints = new Board[count / CHECKPOINT_INTERVAL + 1];
+        this.lastPlayer = lastPlayer;
+        this.lastStatus = lastStatus;
+        int top = 0;
+        board = start.clone();
+        checkpoints[0] = board.clone();
+        for (int i = 0; i < count; i++) {
+            GameMemento m = oldestFirst.next();
+            points[i] = m.getPoint();
+            movers[i] = (byte) m.getCurrentPlayer().ordinal();
+            statuses[i] = (byte) m.getStatus().ordinal();
+            captureStart[i] = top;
+            int n = m.getCapturedCount();
+            if (top + n > captured.length) {
+                captured = Arrays.copyOf(captured, Math.max(captured.length * 2, top + n));
+            }
+            for (int j = 0; j < n; j++) {
+                captured[top++] = m.getCaptured(j);
+            }
+            captureStart[i + 1] = top;
+            forward(i);
+            if ((i + 1) % CHECKPOINT_INTERVAL == 0) {
+                checkpoints[(i + 1) / CHECKPOINT_INTERVAL] = board.clone();
+            }
+        }
+        captured = Arrays.copyOf(captured, top);
+        position = count;
+    }
+
+    //总步数（含虚着）
+    public int getMoveCount() {
+        return count;
+    }
+
+    //当前停在第几步之后，0 为起始局面
+    public int getPosition() {
+        return position;
+    }
+
+    //当前位置的棋盘，只供读取，下一次 seek 后内容会变
+    public Board getBoard() {
+        return board;
+    }
+
+    //当前位置轮到谁行棋
+    public Piece getCurrentPlayer() {
+        return position < count ? PIECES[movers[position]] : lastPlayer;
+    }
+
+    //当前位置的对局状态，只有最后一步之后才可能已经结束
+    public GameStatus getStatus() {
+        return position < count ? GameStatus.values()[statuses[position]] : lastStatus;
+    }
+
+    //第 i 步（从 0 开始）的落子点，虚着为 GameMemento.PASS
+    public int getPoint(int i) {
+        return points[i];
+    }
+
+    //第 i 步的行棋方
+    public Piece getPlayer(int i) {
+        return PIECES[movers[i]];
+    }
+
+    //跳到第 n 步之后（0 <= n <= getMoveCount()）
+    public void seek(int n) {
+        if (n < 0 || n > count) {
+            throw new IllegalArgumentException("Move " + n + " out of range 0.." + count);
+        }
+        //最近的检查点：前一个，或者存在时的后一个
+        int k = (n + CHECKPOINT_INTERVAL / 2) / CHECKPOINT_INTERVAL;
+        if (k >= checkpoints.length) k = checkpoints.length - 1;
+        int from = k * CHECKPOINT_INTERVAL;
+        if (Math.abs(n - from) < Math.abs(n - position)) {
+            board = checkpoints[k].clone();
+            position = from;
+        }
+        while (position < n) {
+            forward(position++);
+        }
+        while (position > n) {
+            backward(--position);
+        }
+    }
+
+    private void forward(int i) {
+        int p = points[i];
+        if (p == GameMemento.PASS) return;
+        board.set(p, PIECES[movers[i]]);
+        for (int j = captureStart[i]; j < captureStart[i + 1]; j++) {
+            board.set(captured[j], Piece.EMPTY);
+        }
+    }
+
+    private void backward(int i) {
+        int p = points[i];
+        if (p == GameMemento.PASS) return;
+        Piece opponent = PIECES[movers[i]].opposite();
+        for (int j = captureStart[i]; j < captureStart[i + 1]; j++) {
+            board.set(captured[j], opponent);
+        }
+        board.set(p, Piece.EMPTY);
+    }
+}
@@ -0,0 +1,473 @@
+package boardgame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+//多局托管：一个进程里同时托管成千上万局互不相干的对局，按会话号访问，可以由多个线程同时操作
+//会话按会话号散列到 stripes 个分段，每段一把锁、一张自己的开放寻址表（会话号 → 会话），
+//不同分段上的操作互不等待，同一分段上的操作按加锁顺序依次执行，同一局的操作因此总是串行的。
+//每局要么活跃：持有一个完整的 GameEngine（围棋的棋链、气集合、悔棋记录、局面历史等，19 路约几十 KB），
+//要么空闲：只保存 GameRecord 编码（起始局面 + 位压缩的着法）和已用的悔棋次数，百来步的对局连同会话本身约 270 字节。
+//每段最多保留 maxLive / stripes 局活跃，超出时把最久没用的一局换出成空闲；再次访问时按记录重放换入，
+//劫、连续虚着数、悔棋历史都随之恢复，代价与步数成正比（19 路每步约 2 微秒，百步的对局约 0.2 毫秒）；
+//操作提示开关和最近一次操作的结果也保存下来，换出换入对调用者不可见。
+//重放在分段锁外进行，只有同一局的其他操作等它换入完成，同段的其他对局照常执行。通过 call 设置了电脑玩家、走子日志、开局库、通知或正在复盘的对局记录不下来，
+//这样的对局一直保持活跃、不会被换出（所在分段的活跃数可以因此超过上限），去掉这些设置后才能换出。
+public class GameSessionManager {
+    private static final int DEFAULT_STRIPES = 64;
+    private static final int DEFAULT_MAX_LIVE = 4096;
+
+    //一局对局
+    private static final class Session {
+        final long id;
+        GameEngine engine;//活跃时的引擎，空闲时为 null
+        byte[] record;//空闲时的 GameRecord 编码，活跃时为 null
+        int undoCount;//空闲时保存的已用悔棋次数
+        boolean showHint;//空闲时保存的操作提示开关
+        String message;//空闲时保存的最近一次操作结果
+        boolean success;
+        long lastUsed;//所在分段的访问时钟，换出时挑最小的
+        int liveIndex = -1;//在所在分段活跃列表中的位置，空闲时为 -1
+        boolean waking;//某个线程正在锁外重放这一局，同一局的其他操作等待
+
+        Session(long id) {
+            this.id = id;
+        }
+    }
+
+    //一个分段：会话表（线性探测，删除时后移补位，不留墓碑）和活跃会话列表，都只在持有本段锁时访问
+    private static final class Stripe {
+        long[] keys = new long[16];
+        Session[] values = new Session[16];
+        int size;
+        final int liveLimit;
+        Session[] live;
+        int liveCount;
+        long clock;
+
+        Stripe(int liveLimit) {
+            this.liveLimit = liveLimit;
+            live = new Session[liveLimit];
+        }
+
+        Session get(long id) {
+            int mask = keys.length - 1;
+            for (int i = slot(id, mask); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == id) return values[i];
+            }
+            return null;
+        }
+
+        void put(Session s) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = slot(s.id, mask);
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = s.id;
+            values[i] = s;
+            size++;
+        }
+
+        Session remove(long id) {
+            int mask = keys.length - 1;
+            int i = slot(id, mask);
+            while (values[i] != null && keys[i] != id) {
+                i = (i + 1) & mask;
+            }
+            Session s = values[i];
+            if (s == null) return null;
+            //后面同一探测序列上的表项前移填补空位
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                boolean stays = i <= j ? i < home && home <= j : i < home || home <= j;
+                if (!stays) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    i = j;
+                }
+            }
+            values[i] = null;
+            size--;
+            return s;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Session[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Session[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] == null) continue;
+                int i = slot(oldKeys[j], mask);
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    public GameSessionManager() {
+        this(DEFAULT_STRIPES, DEFAULT_MAX_LIVE);
+    }
+
+    //stripes 向上取为 2 的幂；maxLive 为全部分段合计最多保留的活跃对局数
+    //maxLive 应不小于同时在下的对局数：访问的对局多于它时大部分操作都要换入，每次重放几百微秒并产生一个完整引擎的垃圾，
+    //延迟随之从几十微秒升到毫秒级，尾部由垃圾回收的停顿决定
+    public GameSessionManager(int stripes, int maxLive) {
+        int n = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Stripe[n];
+        this.stripeMask = n - 1;
+        int liveLimit = Math.max(1, maxLive / n);
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new Stripe(liveLimit);
+        }
+    }
+
+    //开一局新对局，返回会话号
+    public long create(GameType type, int size) {
+        long id = nextId.getAndIncrement();
+        Session s = new Session(id);
+        GameEngine engine = newEngine();
+        engine.startGame(type, size);
+        if (!engine.wasLastActionSuccess()) {
+            throw new IllegalArgumentException(engine.getLastActionMessage());
+        }
+        Stripe stripe = stripeOf(id);
+        synchronized (stripe) {
+            s.engine = engine;
+            stripe.put(s);
+            makeLive(stripe, s);
+        }
+        return id;
+    }
+
+    //在会话 id 的引擎上执行 command 并返回它的结果，没有这个会话时抛出 IllegalArgumentException
+    //执行期间持有所在分段的锁：command 不能把引擎留到之后再用，也不能访问别的会话（两个线程交叉持锁会死锁）
+    //空闲的对局先认领下来，在锁外重放，再重新加锁装入，期间同段的其他对局不受影响
+    public <T> T call(long id, Function<GameEngine, T> command) {
+        Stripe stripe = stripeOf(id);
+        Session s;
+        synchronized (stripe) {
+            s = claim(stripe, id);
+            if (s.engine != null) {
+                s.lastUsed = ++stripe.clock;
+                return command.apply(s.engine);
+            }
+        }
+        GameEngine engine;
+        try {
+            engine = wake(s);
+        } catch (Throwable e) {
+            synchronized (stripe) {
+                s.waking = false;
+                stripe.notifyAll();
+            }
+            throw e;
+        }
+        //装入和解除认领在同一次加锁中完成，等待的线程醒来时看到的已经是活跃的对局
+        synchronized (stripe) {
+            s.waking = false;
+            stripe.notifyAll();
+            //重放期间这一局被删除了
+            if (stripe.get(id) != s) {
+                throw new IllegalArgumentException("No such session: " + id);
+            }
+            s.engine = engine;
+            s.record = null;
+            s.message = null;
+            makeLive(stripe, s);
+            return command.apply(s.engine);
+        }
+    }
+
+    //落子（坐标从 1 开始），返回是否成功；失败原因可由 call(id, GameEngine::getLastActionMessage) 取得
+    public boolean move(long id, int x1Based, int y1Based) {
+        return call(id, game -> {
+            game.move(x1Based, y1Based);
+            return game.wasLastActionSuccess();
+        });
+    }
+
+    public boolean pass(long id) {
+        return call(id, game -> {
+            game.pass();
+            return game.wasLastActionSuccess();
+        });
+    }
+
+    public GameSnapshot snapshot(long id) {
+        return call(id, GameEngine::snapshot);
+    }
+
+    //结束并删除一局（开着的走子日志随之关闭），返回这个会话是否存在
+    public boolean remove(long id) {
+        Stripe stripe = stripeOf(id);
+        synchronized (stripe) {
+            Session s = stripe.remove(id);
+            if (s == null) return false;
+            if (s.liveIndex >= 0) {
+                dropLive(stripe, s);
+                s.engine.closeJournal();
+            }
+            return true;
+        }
+    }
+
+    //托管的对局总数
+    public int size() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.size;
+            }
+        }
+        return total;
+    }
+
+    //当前活跃（持有完整引擎）的对局数
+    public int getLiveCount() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.liveCount;
+            }
+        }
+        return total;
+    }
+
+    //把能换出的活跃对局都换出成紧凑状态，例如在内存紧张或长时间没有操作时调用
+    public void compact() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                //从后往前换出，移到空位上的末尾一项已经检查过
+                for (int i = stripe.liveCount - 1; i >= 0; i--) {
+                    if (stripe.live[i].engine.isDetachable()) {
+                        sleep(stripe, stripe.live[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    private Stripe stripeOf(long id) {
+        return stripes[(int) (mix(id) >>> 40) & stripeMask];
+    }
+
+    //加入所在分段的活跃列表，达到上限时先换出能换出的对局中最久没用的一局，都不能换出时扩大列表
+    private void makeLive(Stripe stripe, Session s) {
+        if (stripe.liveCount >= stripe.liveLimit) {
+            Session oldest = null;
+            for (int i = 0; i < stripe.liveCount; i++) {
+                Session candidate = stripe.live[i];
+                if ((oldest == null || candidate.lastUsed < oldest.lastUsed) && candidate.engine.isDetachable()) {
+                    oldest = candidate;
+                }
+            }
+            if (oldest != null) {
+                sleep(stripe, oldest);
+            }
+        }
+        if (stripe.liveCount == stripe.live.length) {
+            stripe.live = Arrays.copyOf(stripe.live, stripe.live.length * 2);
+        }
+        s.liveIndex = stripe.liveCount;
+        stripe.live[stripe.liveCount++] = s;
+        s.lastUsed = ++stripe.clock;
+    }
+
+    //换出：引擎编码成 GameRecord 后丢掉，只在 isDetachable 时调用
+    private void sleep(Stripe stripe, Session s) {
+        GameEngine engine = s.engine;
+        s.record = engine.exportRecord().toBytes();
+        s.undoCount = engine.getUndoCount();
+        s.showHint = engine.isShowHint();
+        s.message = engine.getLastActionMessage();
+        s.success = engine.wasLastActionSuccess();
+        s.engine = null;
+        dropLive(stripe, s);
+    }
+
+    //在持有分段锁时取得会话：别的线程正在换入这一局时等它完成；返回的会话空闲时由调用者负责换入
+    private static Session claim(Stripe stripe, long id) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                Session s = stripe.get(id);
+                if (s == null) {
+                    throw new IllegalArgumentException("No such session: " + id);
+                }
+                if (!s.waking) {
+                    if (s.engine == null) {
+                        s.waking = true;
+                    }
+                    return s;
+                }
+                try {
+                    stripe.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    //换入：新建引擎按记录重放，在分段锁外调用；认领期间别的线程不会改动这个会话的空闲状态
+    private static GameEngine wake(Session s) {
+        GameEngine engine = newEngine();
+        try {
+            engine.importRecord(GameRecord.fromBytes(ByteBuffer.wrap(s.record), "session " + s.id), s.undoCount);
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt session state: " + s.id, e);
+        }
+        if (!engine.wasLastActionSuccess()) {
+            throw new IllegalStateException("Cannot restore session " + s.id + ": " + engine.getLastActionMessage());
+        }
+        engine.restoreSettings(s.showHint, s.message, s.success);
+        return engine;
+    }
+
+    //从活跃列表中去掉，末尾的一项移到空出的位置
+    private static void dropLive(Stripe stripe, Session s) {
+        Session last = stripe.live[--stripe.liveCount];
+        stripe.live[s.liveIndex] = last;
+        last.liveIndex = s.liveIndex;
+        stripe.live[stripe.liveCount] = null;
+        s.liveIndex = -1;
+    }
+
+    private static GameEngine newEngine() {
+        GameEngine engine = new GameEngine();
+        engine.setQuiet(true);
+        return engine;
+    }
+
+    private static int slot(long id, int mask) {
+        return (int) mix(id) & mask;
+    }
+
+    //会话号是连续分配的，先打散再取分段和槽位
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    //测量：GameSessionManager mem 局数 步数 | GameSessionManager bench 局数 线程数 每线程步数 [活跃上限]
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length >= 3 && args[0].equals("mem")) {
+            int games = Integer.parseInt(args[1]);
+            int plies = Integer.parseInt(args[2]);
+            long before = usedMemory();
+            GameSessionManager manager = new GameSessionManager();
+            long[] ids = new long[games];
+            SplittableRandom random = new SplittableRandom(1);
+            for (int g = 0; g < games; g++) {
+                ids[g] = manager.create(GameType.GO, 19);
+                for (int i = 0; i < plies; i++) {
+                    playRandom(manager, ids[g], random);
+                }
+            }
+            manager.compact();
+            long idle = usedMemory();
+            //全部访问一遍：每局都换入一次，最后留在内存里的是活跃上限那么多局
+            long t0 = System.nanoTime();
+            for (long id : ids) {
+                manager.call(id, GameEngine::getMoveCount);
+            }
+            double wakeMicros = (System.nanoTime() - t0) / 1e3 / games;
+            long withLive = usedMemory();
+            int live = manager.getLiveCount();//在测量之后还用到 manager，测量时它不会被当作垃圾回收
+            double idleBytes = (double) (idle - before) / games;
+            System.out.printf("%d 局 19 路围棋，每局 %d 步：空闲时每局 %.0f 字节，活跃时每局约 %.0f 字节（%d 局活跃），换入每局 %.1f 微秒%n",
+                    games, plies, idleBytes, (double) (withLive - idle) / live + idleBytes, live, wakeMicros);
+        } else if (args.length >= 4 && args[0].equals("bench")) {
+            int games = Integer.parseInt(args[1]);
+            int threads = Integer.parseInt(args[2]);
+            int moves = Integer.parseInt(args[3]);
+            int maxLive = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_MAX_LIVE;
+            GameSessionManager manager = new GameSessionManager(DEFAULT_STRIPES, maxLive);
+            long[] ids = new long[games];
+            for (int g = 0; g < games; g++) {
+                ids[g] = manager.create(GameType.GO, 19);
+            }
+            long[][] latencies = new long[threads][moves];
+            Thread[] workers = new Thread[threads];
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                workers[t] = new Thread(() -> {
+                    SplittableRandom random = new SplittableRandom(worker + 1);
+                    for (int i = 0; i < moves; i++) {
+                        long id = ids[random.nextInt(games)];
+                        long t0 = System.nanoTime();
+                        playRandom(manager, id, random);
+                        latencies[worker][i] = System.nanoTime() - t0;
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long[] all = new long[threads * moves];
+            for (int t = 0; t < threads; t++) {
+                System.arraycopy(latencies[t], 0, all, t * moves, moves);
+            }
+            Arrays.sort(all);
+            System.out.printf("%d 局，%d 线程，活跃上限 %d：每秒 %.0f 步，延迟 p50 %.1f 微秒，p99 %.1f 微秒，p99.9 %.1f 微秒，最大 %.1f 微秒%n",
+                    games, threads, maxLive, all.length / seconds, all[all.length / 2] / 1e3,
+                    all[(int) (all.length * 0.99)] / 1e3, all[(int) (all.length * 0.999)] / 1e3, all[all.length - 1] / 1e3);
+        } else {
+            System.out.println("用法：GameSessionManager mem 局数 步数 | GameSessionManager bench 局数 线程数 每线程步数 [活跃上限]");
+        }
+    }
+
+    //随机找一个合法点落子，找不到就虚着；对局结束或下满 200 步后重新开始
+    private static void playRandom(GameSessionManager manager, long id, SplittableRandom random) {
+        manager.call(id, game -> {
+            if (game.getStatus() != GameStatus.ONGOING || game.getMoveCount() >= 200) {
+                game.restart();
+                return null;
+            }
+            int size = game.getBoard().getSize();
+            for (int tries = 0; tries < 20; tries++) {
+                int x = random.nextInt(size) + 1;
+                int y = random.nextInt(size) + 1;
+                if (game.isLegalMove(x, y)) {
+                    game.move(x, y);
+                    return null;
+                }
+            }
+            game.pass();
+            return null;
+        });
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
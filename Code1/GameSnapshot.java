@@ -0,0 +1,103 @@
+package boardgame;
+
+//棋局快照：某一时刻界面需要的全部状态（棋子、行棋方、对局状态、当前行棋方的合法落点、最近一次操作的结果）
+//由 GameEngine 在引擎线程上生成，生成后不再改变，界面线程可以随意读取、重绘，不会与引擎的修改冲突。
+public final class GameSnapshot {
+    //尚未开局时的快照
+    static final GameSnapshot NONE = new GameSnapshot(null, 0, new byte[0], new boolean[0], null, null, "", true, 0, 0, false);
+
+    private static final Piece[] PIECES = Piece.values();
+
+    private final GameType gameType;
+    private final int size;
+    private final byte[] cells;//每个点的 Piece ordinal
+    private final boolean[] legal;//当前行棋方能否在该点落子，对局结束时全为 false
+    private final Piece currentPlayer;
+    private final GameStatus status;
+    private final String message;
+    private final boolean success;
+    private final int moveCount;
+    private final int displayedMove;//显示的是第几步之后的局面，复盘时小于 moveCount
+    private final boolean computerThinking;
+
+    GameSnapshot(GameType gameType, int size, byte[] cells, boolean[] legal, Piece currentPlayer,
+                 GameStatus status, String message, boolean success, int moveCount, int displayedMove,
+                 boolean computerThinking) {
+        this.gameType = gameType;
+        this.size = size;
+        this.cells = cells;
+        this.legal = legal;
+        this.currentPlayer = currentPlayer;
+        this.status = status;
+        this.message = message;
+        this.success = success;
+        this.moveCount = moveCount;
+        this.displayedMove = displayedMove;
+        this.computerThinking = computerThinking;
+    }
+
+    //局面不变、最近一次操作改为失败的快照
+    GameSnapshot withFailure(String message) {
+        return new GameSnapshot(gameType, size, cells, legal, currentPlayer, status, message, false,
+                moveCount, displayedMove, computerThinking);
+    }
+
+    //是否已经开局
+    public boolean hasGame() {
+        return gameType != null;
+    }
+
+    public GameType getGameType() {
+        return gameType;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    //(row, col) 上的棋子，坐标从 0 开始
+    public Piece get(int row, int col) {
+        return PIECES[cells[row * size + col]];
+    }
+
+    //当前行棋方能否在 (row, col) 落子，坐标从 0 开始
+    public boolean isLegal(int row, int col) {
+        return legal[row * size + col];
+    }
+
+    public Piece getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public GameStatus getStatus() {
+        return status;
+    }
+
+    public String getLastActionMessage() {
+        return message;
+    }
+
+    public boolean wasLastActionSuccess() {
+        return success;
+    }
+
+    //已下的步数（含虚着）
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    //棋子显示的是第几步之后的局面（0 为起始局面）
+    public int getDisplayedMove() {
+        return displayedMove;
+    }
+
+    //是否在复盘（显示的不是最新局面，不能落子）
+    public boolean isReviewing() {
+        return displayedMove < moveCount;
+    }
+
+    //轮到电脑执子的一方，电脑正在思考
+    public boolean isComputerThinking() {
+        return computerThinking;
+    }
+}
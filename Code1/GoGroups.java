@@ -0,0 +1,357 @@
+package boardgame;
+
+import java.util.Arrays;
+
+//围棋棋链追踪类
+//为棋盘上每条棋链维护：成员循环链表、棋子数、气的位集合（以链头为下标），
+//落子、合并、提子时只更新受影响的棋链，不再每步递归遍历整块棋。
+//所有修改（包括对棋盘的修改）都记录在回退栈（trail）上，undo() 可原地撤销最近一次 place()。
+public class GoGroups {
+    //trail 中记录的数组种类
+    private static final int KIND_HEAD = 0;
+    private static final int KIND_NEXT = 1;
+    private static final int KIND_SIZE = 2;
+    private static final int KIND_LIBS = 3;
+    private static final int KIND_BOARD = 4;
+    private static final Piece[] PIECES = Piece.values();
+
+    private final Board board;
+    private final int n;//交叉点总数
+    private final int words;//每条棋链气集合的 long 个数
+    private final int[] nbr;//四邻表
+
+    private final int[] head;//每个棋子所在棋链的链头，空点为 -1
+    private final int[] next;//同一棋链成员组成的循环链表
+    private final int[] chainSize;//以链头为下标的棋子数
+    private final long[] libs;//以链头为下标的气集合，链头 h 占用 [h * words, (h + 1) * words)
+
+    //回退栈：slot 为 (种类 << 16 | 下标)，old 为修改前的值
+    private int[] trailSlot = new int[256];
+    private long[] trailOld = new long[256];
+    private int trailTop = 0;
+    //每次 place() 开始时的 trailTop
+    private int[] marks = new int[64];
+    private int markTop = 0;
+
+    //最近一次 place() 提掉的棋子
+    private final int[] captured;
+    private int capturedCount = 0;
+
+    //最近一次由本类修改后的棋盘哈希，用于发现棋盘被外部改动
+    private long syncedHash;
+
+    //根据棋盘现有棋子建立棋链
+    public GoGroups(Board board) {
+        this.board = board;
+        this.n = board.getPointCount();
+        this.words = board.getWordCount();
+        this.nbr = board.neighborTable();
+        this.head = new int[n];
+        this.next = new int[n];
+        this.chainSize = new int[n];
+        this.libs = new long[n * words];
+        this.captured = new int[n];
+        rebuild();
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    //丢弃所有棋链与回退记录，按棋盘当前内容重建
+    public void rebuild() {
+        Arrays.fill(head, -1);
+        trailTop = 0;
+        markTop = 0;
+        capturedCount = 0;
+        //按任意顺序逐个加入棋子即可：合法局面的任意子集中每条链都至少有一口气
+        for (int p = 0; p < n; p++) {
+            Piece c = board.get(p);
+            if (c != Piece.EMPTY) {
+                addStone(p, c);
+            }
+        }
+        trailTop = 0;
+        syncedHash = board.getHash();
+    }
+
+    //棋盘自上次由本类修改后是否未被外部改动过
+    public boolean isInSync() {
+        return board.getHash() == syncedHash;
+    }
+
+    //在空点 p 放置 color 时是否为自杀（无气且不能提子），只读判断，O(1)
+    public boolean isSuicide(int p, Piece color) {
+        for (int k = 4 * p, end = k + 4; k < end; k++) {
+            int q = nbr[k];
+            if (q < 0) continue;
+            int h = head[q];
+            if (h < 0) return false;//相邻空点就是一口气
+            int l = libertyCount(h);
+            if (board.get(q) == color) {
+                if (l > 1) return false;//连上一条还有别的气的己方棋链
+            } else if (l == 1) {
+                return false;//能提掉对方
+            }
+        }
+        return true;
+    }
+
+    //在空点 p 落下 color 后的棋盘哈希（不含行棋方），只读计算：异或新子与将被提掉的对方棋子
+    public long hashAfter(int p, Piece color) {
+        long h = board.getHash() ^ Zobrist.key(color, p);
+        Piece opponent = color.opposite();
+        int seen0 = -1, seen1 = -1, seen2 = -1;
+        for (int k = 4 * p, end = k + 4; k < end; k++) {
+            int q = nbr[k];
+            if (q < 0) continue;
+            int c = head[q];
+            if (c < 0 || c == seen0 || c == seen1 || c == seen2) continue;
+            seen2 = seen1;
+            seen1 = seen0;
+            seen0 = c;
+            if (board.get(q) == opponent && libertyCount(c) == 1) {
+                int m = c;
+                do {
+                    h ^= Zobrist.key(opponent, m);
+                    m = next[m];
+                } while (m != c);
+            }
+        }
+        return h;
+    }
+
+    //在空点 p 落下 color，合并相邻己方棋链并提掉无气的对方棋链，返回提子数
+    //调用方需保证 p 为空点且不是自杀
+    public int place(int p, Piece color) {
+        if (markTop == marks.length) {
+            marks = Arrays.copyOf(marks, markTop * 2);
+        }
+        marks[markTop++] = trailTop;
+        capturedCount = 0;
+
+        setBoard(p, color);
+        addStone(p, color);
+
+        //相邻对方棋链若已无气则提掉
+        for (int k = 4 * p, end = k + 4; k < end; k++) {
+            int q = nbr[k];
+            if (q < 0) continue;
+            int h = head[q];
+            if (h >= 0 && board.get(q) != color && libertyCount(h) == 0) {
+                removeChain(h, color);
+            }
+        }
+        syncedHash = board.getHash();
+        return capturedCount;
+    }
+
+    //撤销最近一次 place()，棋盘与棋链同时恢复
+    public void undo() {
+        if (markTop == 0) {
+            throw new IllegalStateException("Nothing to undo.");
+        }
+        int target = marks[--markTop];
+        while (trailTop > target) {
+            trailTop--;
+            int slot = trailSlot[trailTop];
+            int i = slot & 0xFFFF;
+            long old = trailOld[trailTop];
+            switch (slot >>> 16) {
+                case KIND_HEAD:
+                    head[i] = (int) old;
+                    break;
+                case KIND_NEXT:
+                    next[i] = (int) old;
+                    break;
+                case KIND_SIZE:
+                    chainSize[i] = (int) old;
+                    break;
+                case KIND_LIBS:
+                    libs[i] = old;
+                    break;
+                default:
+                    board.set(i, PIECES[(int) old]);
+            }
+        }
+        capturedCount = 0;
+        syncedHash = board.getHash();
+    }
+
+    //可撤销的步数
+    public int undoDepth() {
+        return markTop;
+    }
+
+    //点 p 所在棋链的链头，空点返回 -1
+    public int chainHead(int p) {
+        return head[p];
+    }
+
+    //同一棋链中 p 的下一个成员（循环）
+    public int nextInChain(int p) {
+        return next[p];
+    }
+
+    //点 p 所在棋链的棋子数
+    public int chainSize(int p) {
+        return chainSize[head[p]];
+    }
+
+    //点 p 所在棋链的气数
+    public int liberties(int p) {
+        return libertyCount(head[p]);
+    }
+
+    //点 p 所在棋链从 from 开始（含）的下一口气，没有返回 -1
+    public int nextLiberty(int p, int from) {
+        int base = head[p] * words;
+        int w = from >>> 6;
+        if (w >= words) return -1;
+        long word = libs[base + w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w >= words) return -1;
+            word = libs[base + w];
+        }
+    }
+
+    public int getCapturedCount() {
+        return capturedCount;
+    }
+
+    public int getCaptured(int i) {
+        return captured[i];
+    }
+
+    //把棋子 p 加入数据结构（棋盘上已经有这颗子），与相邻己方棋链合并，并从相邻棋链的气中去掉 p
+    private void addStone(int p, Piece color) {
+        setHead(p, p);
+        setNext(p, p);
+        setSize(p, 1);
+        int base = p * words;
+        for (int w = 0; w < words; w++) {
+            setLibs(base + w, 0L);
+        }
+        for (int k = 4 * p, end = k + 4; k < end; k++) {
+            int q = nbr[k];
+            if (q < 0) continue;
+            int h = head[q];
+            if (h < 0) {
+                if (board.isEmpty(q)) {
+                    addLiberty(head[p], q);
+                }
+                continue;
+            }
+            removeLiberty(h, p);
+            if (board.get(q) == color && h != head[p]) {
+                merge(head[p], h);
+            }
+        }
+    }
+
+    //合并两条棋链：小链并入大链，只重写小链成员的链头
+    private void merge(int a, int b) {
+        int big = chainSize[a] >= chainSize[b] ? a : b;
+        int small = big == a ? b : a;
+        int m = small;
+        do {
+            setHead(m, big);
+            m = next[m];
+        } while (m != small);
+        //拼接两个循环链表
+        int tmp = next[big];
+        setNext(big, next[small]);
+        setNext(small, tmp);
+        setSize(big, chainSize[big] + chainSize[small]);
+        int bb = big * words, sb = small * words;
+        for (int w = 0; w < words; w++) {
+            long merged = libs[bb + w] | libs[sb + w];
+            if (merged != libs[bb + w]) {
+                setLibs(bb + w, merged);
+            }
+        }
+    }
+
+    //提掉链头为 h 的棋链，capturer 为提子方，被提的点成为其相邻棋链的气
+    private void removeChain(int h, Piece capturer) {
+        int start = capturedCount;
+        int m = h;
+        do {
+            int following = next[m];
+            setBoard(m, Piece.EMPTY);
+            setHead(m, -1);
+            captured[capturedCount++] = m;
+            m = following;
+        } while (m != h);
+        for (int i = start; i < capturedCount; i++) {
+            int c = captured[i];
+            for (int k = 4 * c, end = k + 4; k < end; k++) {
+                int q = nbr[k];
+                if (q >= 0 && head[q] >= 0 && board.get(q) == capturer) {
+                    addLiberty(head[q], c);
+                }
+            }
+        }
+    }
+
+    private int libertyCount(int h) {
+        int base = h * words;
+        int c = 0;
+        for (int w = 0; w < words; w++) {
+            c += Long.bitCount(libs[base + w]);
+        }
+        return c;
+    }
+
+    private void addLiberty(int h, int p) {
+        int i = h * words + (p >>> 6);
+        long v = libs[i] | (1L << p);
+        if (v != libs[i]) setLibs(i, v);
+    }
+
+    private void removeLiberty(int h, int p) {
+        int i = h * words + (p >>> 6);
+        long v = libs[i] & ~(1L << p);
+        if (v != libs[i]) setLibs(i, v);
+    }
+
+    // ===== 带回退记录的写操作 =====
+
+    private void setHead(int i, int v) {
+        record(KIND_HEAD, i, head[i]);
+        head[i] = v;
+    }
+
+    private void setNext(int i, int v) {
+        record(KIND_NEXT, i, next[i]);
+        next[i] = v;
+    }
+
+    private void setSize(int i, int v) {
+        record(KIND_SIZE, i, chainSize[i]);
+        chainSize[i] = v;
+    }
+
+    private void setLibs(int i, long v) {
+        record(KIND_LIBS, i, libs[i]);
+        libs[i] = v;
+    }
+
+    private void setBoard(int p, Piece piece) {
+        record(KIND_BOARD, p, board.get(p).ordinal());
+        board.set(p, piece);
+    }
+
+    private void record(int kind, int i, long old) {
+        if (trailTop == trailSlot.length) {
+            trailSlot = Arrays.copyOf(trailSlot, trailTop * 2);
+            trailOld = Arrays.copyOf(trailOld, trailTop * 2);
+        }
+        trailSlot[trailTop] = (kind << 16) | i;
+        trailOld[trailTop] = old;
+        trailTop++;
+    }
+}
@@ -0,0 +1,307 @@
+package boardgame;
+
+import java.util.Arrays;
+
+//围棋电脑玩家：蒙特卡洛树搜索（UCT + RAVE）
+//根并行：每个线程各自建一棵树、各用一块 GoPlayoutBoard 做随机对局，互不加锁，
+//时间到后把各棵树根节点的访问次数相加，选访问最多的着法。
+//树内只判简单劫；根节点的候选着法来自 rule.legalMoves，全局同形由 GoRule 保证，逃不出的征子由 GoTactics 排除。
+public class GoMcts implements ComputerPlayer {
+    private static final int EXPAND_THRESHOLD = 8;//子节点访问次数达到后才为它建立节点
+    private static final double RAVE_EQUIV = 1000;//RAVE 权重减半时的访问次数
+    private static final double EXPLORATION = 0.25;
+    private static final double PASS_WIN_RATE = 0.05;//最佳着法胜率低于此值时虚着
+
+    private final long timeBudgetNanos;
+    private final int threads;
+    private final GoTactics tactics = new GoTactics();
+
+    //最近一次思考的统计
+    private long lastPlayouts;
+    private long lastElapsedNanos;
+    private double lastWinRate;
+
+    //默认每步 1 秒，使用全部 CPU 核
+    public GoMcts() {
+        this(1000, Runtime.getRuntime().availableProcessors());
+    }
+
+    public GoMcts(long timeBudgetMillis, int threads) {
+        this.timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+        this.threads = Math.max(1, threads);
+    }
+
+    @Override
+    public String getName() {
+        return "围棋 AI";
+    }
+
+    @Override
+    public String getStatistics() {
+        return String.format("模拟 %d 局，%d 线程，每核每秒 %.0f 局，胜率 %.1f%%",
+                lastPlayouts, threads, getPlayoutsPerSecondPerCore(), lastWinRate * 100);
+    }
+
+    public long getLastPlayouts() {
+        return lastPlayouts;
+    }
+
+    //最近一次思考中每个线程每秒完成的模拟对局数
+    public double getPlayoutsPerSecondPerCore() {
+        if (lastElapsedNanos == 0) return 0;
+        return lastPlayouts * 1e9 / lastElapsedNanos / threads;
+    }
+
+    //最近一次所选着法的估计胜率（行棋方视角）
+    public double getLastWinRate() {
+        return lastWinRate;
+    }
+
+    @Override
+    public int chooseMove(Board board, RuleStrategy rule, Piece player) {
+        long start = System.nanoTime();
+        int size = board.getSize();
+        int n = board.getPointCount();
+        double komi = rule instanceof GoRule ? ((GoRule) rule).getKomi() : 7.5;
+        int c = player.ordinal();
+
+        GoPlayoutBoard root = new GoPlayoutBoard(size, 1);
+        root.load(board);
+
+        //对方刚虚着且按当前盘面已经领先时跟着虚着，结束对局
+        if (rule.getConsecutivePasses() > 0 && leads(root.areaScore(), komi, c)) {
+            lastPlayouts = 0;
+            lastElapsedNanos = System.nanoTime() - start;
+            lastWinRate = 1;
+            return GameMemento.PASS;
+        }
+
+        //根节点候选：规则允许且不填自己眼的点
+        int[] legal = new int[n];
+        int count = rule.legalMoves(board, player, legal);
+        int[] moves = new int[count];
+        int m = 0;
+        for (int i = 0; i < count; i++) {
+            if (!root.isEye(legal[i], c)) {
+                moves[m++] = legal[i];
+            }
+        }
+        if (m == 0) {
+            lastPlayouts = 0;
+            lastElapsedNanos = System.nanoTime() - start;
+            lastWinRate = 0;
+            return GameMemento.PASS;
+        }
+        //随机模拟看不出征子，逃不出的征子由战术计算排除；全部被排除时保留原来的候选
+        int kept = 0;
+        for (int i = 0; i < m; i++) {
+            if (!tactics.isFutileExtension(board, moves[i], player)) {
+                legal[kept++] = moves[i];
+            }
+        }
+        int[] rootMoves = kept > 0 ? Arrays.copyOf(legal, kept) : Arrays.copyOf(moves, m);
+        m = rootMoves.length;
+
+        long deadline = start + timeBudgetNanos;
+        Searcher[] searchers = new Searcher[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            searchers[t] = new Searcher(root, rootMoves, c, komi, deadline, 0x9E3779B97F4A7C15L * (t + 1) ^ start);
+            workers[t] = new Thread(searchers[t], "go-mcts-" + t);
+            workers[t].setDaemon(true);
+            workers[t].start();
+        }
+        long playouts = 0;
+        for (Thread w : workers) {
+            try {
+                w.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        //合并各线程根节点的统计
+        long[] visits = new long[m];
+        long[] wins = new long[m];
+        for (Searcher s : searchers) {
+            playouts += s.playouts;
+            Node r = s.root;
+            for (int i = 0; i < m; i++) {
+                visits[i] += r.visits[i];
+                wins[i] += r.wins[i];
+            }
+        }
+        int best = 0;
+        for (int i = 1; i < m; i++) {
+            if (visits[i] > visits[best]) best = i;
+        }
+        lastPlayouts = playouts;
+        lastElapsedNanos = System.nanoTime() - start;
+        lastWinRate = visits[best] == 0 ? 0.5 : (double) wins[best] / visits[best];
+        if (lastWinRate < PASS_WIN_RATE) {
+            return GameMemento.PASS;
+        }
+        return rootMoves[best];
+    }
+
+    //数子法分差 score（黑减白，不含贴目）下 c 方是否领先
+    private static boolean leads(int score, double komi, int c) {
+        double diff = score - komi;
+        return c == GoPlayoutBoard.BLACK ? diff > 0 : diff < 0;
+    }
+
+    //树节点：子节点的着法与统计存放在数组里，子节点对象在访问足够多次后才创建
+    private static final class Node {
+        final int color;//在本节点行棋的一方
+        final int[] moves;//着法，虚着为 GameMemento.PASS
+        final int[] visits;
+        final int[] wins;//color 方获胜的次数
+        final int[] amafVisits;
+        final int[] amafWins;
+        final Node[] children;
+        int total;
+
+        Node(int color, int[] moves) {
+            this.color = color;
+            this.moves = moves;
+            int k = moves.length;
+            this.visits = new int[k];
+            this.wins = new int[k];
+            this.amafVisits = new int[k];
+            this.amafWins = new int[k];
+            this.children = new Node[k];
+        }
+
+        //UCT 与 RAVE 加权后的选择
+        int select() {
+            double logTotal = Math.log(total + 1);
+            int best = 0;
+            double bestValue = -1;
+            for (int i = 0; i < moves.length; i++) {
+                double v = visits[i];
+                double av = amafVisits[i];
+                double value;
+                if (v + av == 0) {
+                    value = 1.5;//从未试过的着法优先
+                } else {
+                    double beta = av / (av + v + v * av / RAVE_EQUIV);
+                    double q = v == 0 ? 0 : wins[i] / v;
+                    double amaf = av == 0 ? 0 : amafWins[i] / av;
+                    value = (1 - beta) * q + beta * amaf + EXPLORATION * Math.sqrt(logTotal / (v + 1));
+                }
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = i;
+                }
+            }
+            return best;
+        }
+    }
+
+    //单个搜索线程：独占一棵树和一块模拟棋盘
+    private static final class Searcher implements Runnable {
+        private final GoPlayoutBoard template;
+        private final GoPlayoutBoard work;
+        private final Node root;
+        private final double komi;
+        private final long deadline;
+        private final int maxMoves;
+        private final byte[] firstColor;
+        private final int[] candidates;
+        private Node[] pathNode = new Node[64];
+        private int[] pathIndex = new int[64];
+        private long playouts;
+
+        Searcher(GoPlayoutBoard template, int[] rootMoves, int color, double komi, long deadline, long seed) {
+            int size = template.getSize();
+            this.template = template;
+            this.work = new GoPlayoutBoard(size, seed);
+            this.root = new Node(color, rootMoves);
+            this.komi = komi;
+            this.deadline = deadline;
+            this.maxMoves = 3 * size * size;
+            this.firstColor = new byte[size * size];
+            this.candidates = new int[size * size];
+        }
+
+        @Override
+        public void run() {
+            do {
+                for (int i = 0; i < 64; i++) {
+                    iterate();
+                }
+            } while (System.nanoTime() < deadline);
+        }
+
+        //一次选择 - 扩展 - 模拟 - 回传
+        private void iterate() {
+            work.copyFrom(template);
+            Arrays.fill(firstColor, (byte) 0);
+            Node node = root;
+            int depth = 0;
+            int c = root.color;
+            while (true) {
+                int i = node.select();
+                if (depth == pathNode.length) {
+                    pathNode = Arrays.copyOf(pathNode, depth * 2);
+                    pathIndex = Arrays.copyOf(pathIndex, depth * 2);
+                }
+                pathNode[depth] = node;
+                pathIndex[depth] = i;
+                depth++;
+                int move = node.moves[i];
+                if (move == GameMemento.PASS) {
+                    work.pass();
+                } else {
+                    if (firstColor[move] == 0) firstColor[move] = (byte) c;
+                    work.play(move, c);
+                }
+                c = 3 - c;
+                if (work.getPasses() >= 2) break;
+                Node child = node.children[i];
+                if (child == null) {
+                    if (node.visits[i] + 1 < EXPAND_THRESHOLD) break;
+                    child = expand(c);
+                    node.children[i] = child;
+                }
+                node = child;
+            }
+            int score = work.getPasses() >= 2 ? work.areaScore() : work.playout(c, maxMoves, firstColor);
+            int winner = score - komi > 0 ? GoPlayoutBoard.BLACK : GoPlayoutBoard.WHITE;
+            playouts++;
+
+            //回传：树内统计 + AMAF 统计（本次对局中某点第一次由 nd.color 落子，就把它算作 nd 的这步棋）
+            //firstColor 按整局记录，不区分深度，是常用的简化
+            for (int d = 0; d < depth; d++) {
+                Node nd = pathNode[d];
+                int i = pathIndex[d];
+                boolean won = nd.color == winner;
+                nd.total++;
+                nd.visits[i]++;
+                if (won) nd.wins[i]++;
+                for (int k = 0; k < nd.moves.length; k++) {
+                    int mv = nd.moves[k];
+                    if (mv != GameMemento.PASS && firstColor[mv] == nd.color) {
+                        nd.amafVisits[k]++;
+                        if (won) nd.amafWins[k]++;
+                    }
+                }
+            }
+        }
+
+        //为当前模拟棋盘上行棋方 c 建立节点：合法且不填自己眼的点，没有时只有虚着
+        private Node expand(int c) {
+            int k = 0;
+            for (int i = 0, e = work.getEmptyCount(); i < e; i++) {
+                int p = work.getEmpty(i);
+                if (!work.isEye(p, c) && work.isLegal(p, c)) {
+                    candidates[k++] = p;
+                }
+            }
+            if (k == 0) {
+                return new Node(c, new int[]{GameMemento.PASS});
+            }
+            return new Node(c, Arrays.copyOf(candidates, k));
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package boardgame;
+
+//围棋模拟对局专用的精简棋盘
+//只保留随机对局需要的东西：颜色数组、空点列表、棋链（链头 + 循环链表）和伪气计数。
+//伪气：棋链棋子与相邻空点的邻接次数，同一空点与多颗棋子相邻时重复计数；
+//同时记录这些空点编号的和与平方和，三者满足 sum^2 == libs * sumSq 当且仅当只剩一口真气（被叫吃）。
+//只判简单劫，不判全局同形，不做任何撤销，每次模拟从根局面 copyFrom 开始。
+public class GoPlayoutBoard {
+    public static final int EMPTY = 0;
+    public static final int BLACK = 1;
+    public static final int WHITE = 2;
+
+    private final int size;
+    private final int n;
+    private final int[] nbr;//四邻表，越界为 -1
+    private final int[] diag;//四个斜邻点，越界为 -1
+
+    private final byte[] color;
+    private final int[] head;
+    private final int[] next;
+    private final int[] stones;//以链头为下标的棋子数
+    private final int[] libs;//以链头为下标的伪气数
+    private final int[] libSum;
+    private final long[] libSumSq;
+
+    private final int[] empties;//空点列表，emptyIndex[p] 为 p 在列表中的位置
+    private final int[] emptyIndex;
+    private int emptyCount;
+
+    private int koPoint = -1;
+    private int passes = 0;
+    private long rng;
+
+    public GoPlayoutBoard(int size, long seed) {
+        this.size = size;
+        this.n = size * size;
+        this.nbr = new Board(size).neighborTable();
+        this.diag = new int[4 * n];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                int k = 4 * (x * size + y);
+                diag[k] = x > 0 && y > 0 ? (x - 1) * size + y - 1 : -1;
+                diag[k + 1] = x > 0 && y < size - 1 ? (x - 1) * size + y + 1 : -1;
+                diag[k + 2] = x < size - 1 && y > 0 ? (x + 1) * size + y - 1 : -1;
+                diag[k + 3] = x < size - 1 && y < size - 1 ? (x + 1) * size + y + 1 : -1;
+            }
+        }
+        this.color = new byte[n];
+        this.head = new int[n];
+        this.next = new int[n];
+        this.stones = new int[n];
+        this.libs = new int[n];
+        this.libSum = new int[n];
+        this.libSumSq = new long[n];
+        this.empties = new int[n];
+        this.emptyIndex = new int[n];
+        this.rng = seed | 1;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    //按 Board 的内容重建
+    public void load(Board board) {
+        emptyCount = 0;
+        for (int p = 0; p < n; p++) {
+            color[p] = EMPTY;
+            head[p] = -1;
+            emptyIndex[p] = emptyCount;
+            empties[emptyCount++] = p;
+        }
+        for (int p = 0; p < n; p++) {
+            Piece c = board.get(p);
+            if (c != Piece.EMPTY) {
+                addStone(p, c.ordinal());
+            }
+        }
+        koPoint = -1;
+        passes = 0;
+    }
+
+    //复制另一块同尺寸的模拟棋盘（随机数状态除外）
+    public void copyFrom(GoPlayoutBoard o) {
+        System.arraycopy(o.color, 0, color, 0, n);
+        System.arraycopy(o.head, 0, head, 0, n);
+        System.arraycopy(o.next, 0, next, 0, n);
+        System.arraycopy(o.stones, 0, stones, 0, n);
+        System.arraycopy(o.libs, 0, libs, 0, n);
+        System.arraycopy(o.libSum, 0, libSum, 0, n);
+        System.arraycopy(o.libSumSq, 0, libSumSq, 0, n);
+        System.arraycopy(o.empties, 0, empties, 0, o.emptyCount);
+        System.arraycopy(o.emptyIndex, 0, emptyIndex, 0, n);
+        emptyCount = o.emptyCount;
+        koPoint = o.koPoint;
+        passes = o.passes;
+    }
+
+    public int get(int p) {
+        return color[p];
+    }
+
+    public int getPasses() {
+        return passes;
+    }
+
+    public int getEmptyCount() {
+        return emptyCount;
+    }
+
+    public int getEmpty(int i) {
+        return empties[i];
+    }
+
+    //c 在空点 p 落子是否合法：不是劫争禁着点，也不是自杀
+    public boolean isLegal(int p, int c) {
+        if (color[p] != EMPTY || p == koPoint) return false;
+        for (int k = 4 * p, end = k + 4; k < end; k++) {
+            int q = nbr[k];
+            if (q < 0) continue;
+            int qc = color[q];
+            if (qc == EMPTY) return true;
+            boolean atari = inAtari(head[q]);
+            if (qc == c ? !atari : atari) return true;//连上有别的气的己方棋链，或提掉对方
+        }
+        return false;
+    }
+
+    //空点 p 是否为 c 的眼：四邻都是 c（或棋盘外），斜邻对方棋子在盘中不超过 1 个、在边角为 0 个
+    public boolean isEye(int p, int c) {
+        int edge = 0;
+        for (int k = 4 * p, end = k + 4; k < end; k++) {
+            int q = nbr[k];
+            if (q < 0) {
+                edge = 1;
+            } else if (color[q] != c) {
+                return false;
+            }
+        }
+        int opponent = 3 - c, bad = 0;
+        for (int k = 4 * p, end = k + 4; k < end; k++) {
+            int q = diag[k];
+            if (q >= 0 && color[q] == opponent) bad++;
+        }
+        return bad + edge < 2;
+    }
+
+    //c 在 p 落子（调用方保证合法），返回提子数
+    public int play(int p, int c) {
+        passes = 0;
+        addStone(p, c);
+        int opponent = 3 - c;
+        int captured = 0, lastCaptured = -1;
+        for (int k = 4 * p, end = k + 4; k < end; k++) {
+            int q = nbr[k];
+            if (q >= 0 && color[q] == opponent && libs[head[q]] == 0) {
+                lastCaptured = head[q];
+                captured += removeChain(head[q]);
+            }
+        }
+        //只提一子且落下的子自己只有一口气（就是提子点）时形成劫
+        int h = head[p];
+        koPoint = captured == 1 && stones[h] == 1 && libs[h] == 1 ? lastCaptured : -1;
+        return captured;
+    }
+
+    public void pass() {
+        passes++;
+        koPoint = -1;
+    }
+
+    //为 c 随机选一个合法且不填自己眼的点，没有则返回 -1（虚着）
+    //从空点列表的随机位置开始循环查找，保证均匀且不用额外的候选数组
+    public int randomMove(int c) {
+        if (emptyCount == 0) return -1;
+        int start = nextInt(emptyCount);
+        for (int i = 0; i < emptyCount; i++) {
+            int j = start + i;
+            if (j >= emptyCount) j -= emptyCount;
+            int p = empties[j];
+            if (!isEye(p, c) && isLegal(p, c)) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    //从当前局面随机下完，c 先行，最多 maxMoves 手；firstColor[p] 记录每个点在本次模拟中第一次落子的颜色（未落子为 0）
+    //返回 (黑方子数 + 黑方眼) - (白方子数 + 白方眼)，即数子法下不含贴目的分差
+    public int playout(int c, int maxMoves, byte[] firstColor) {
+        for (int m = 0; m < maxMoves && passes < 2; m++) {
+            int p = randomMove(c);
+            if (p < 0) {
+                pass();
+            } else {
+                if (firstColor[p] == EMPTY) firstColor[p] = (byte) c;
+                play(p, c);
+            }
+            c = 3 - c;
+        }
+        return areaScore();
+    }
+
+    //数子法分差（黑减白）：棋子加四邻同色的空点
+    public int areaScore() {
+        int score = 0;
+        for (int p = 0; p < n; p++) {
+            int c = color[p];
+            if (c == EMPTY) {
+                c = surroundedBy(p);
+            }
+            if (c == BLACK) score++;
+            else if (c == WHITE) score--;
+        }
+        return score;
+    }
+
+    public int nextInt(int bound) {
+        rng ^= rng << 13;
+        rng ^= rng >>> 7;
+        rng ^= rng << 17;
+        return (int) (((rng >>> 32) * bound) >>> 32);
+    }
+
+    //四邻都是同一种颜色时返回该颜色，否则返回 EMPTY
+    private int surroundedBy(int p) {
+        int c = EMPTY;
+        for (int k = 4 * p, end = k + 4; k < end; k++) {
+            int q = nbr[k];
+            if (q < 0) continue;
+            int qc = color[q];
+            if (qc == EMPTY || (c != EMPTY && qc != c)) return EMPTY;
+            c = qc;
+        }
+        return c;
+    }
+
+    private boolean inAtari(int h) {
+        long l = libs[h];
+        long s = libSum[h];
+        return s * s == l * libSumSq[h];
+    }
+
+    //把 c 的棋子放到空点 p：更新四邻棋链的伪气，与己方棋链合并
+    private void addStone(int p, int c) {
+        color[p] = (byte) c;
+        int last = empties[--emptyCount];
+        empties[emptyIndex[p]] = last;
+        emptyIndex[last] = emptyIndex[p];
+        head[p] = p;
+        next[p] = p;
+        stones[p] = 1;
+        libs[p] = 0;
+        libSum[p] = 0;
+        libSumSq[p] = 0;
+        for (int k = 4 * p, end = k + 4; k < end; k++) {
+            int q = nbr[k];
+            if (q < 0) continue;
+            if (color[q] == EMPTY) {
+                addLiberty(p, q);
+            } else {
+                removeLiberty(head[q], p);
+            }
+        }
+        for (int k = 4 * p, end = k + 4; k < end; k++) {
+            int q = nbr[k];
+            if (q >= 0 && color[q] == c && head[q] != head[p]) {
+                merge(head[p], head[q]);
+            }
+        }
+    }
+
+    private void merge(int a, int b) {
+        int big = stones[a] >= stones[b] ? a : b;
+        int small = big == a ? b : a;
+        int m = small;
+        do {
+            head[m] = big;
+            m = next[m];
+        } while (m != small);
+        int tmp = next[big];
+        next[big] = next[small];
+        next[small] = tmp;
+        stones[big] += stones[small];
+        libs[big] += libs[small];
+        libSum[big] += libSum[small];
+        libSumSq[big] += libSumSq[small];
+    }
+
+    //提掉链头为 h 的棋链，被提的点成为相邻棋链的伪气
+    private int removeChain(int h) {
+        int count = stones[h];
+        int m = h;
+        do {
+            color[m] = EMPTY;
+            emptyIndex[m] = emptyCount;
+            empties[emptyCount++] = m;
+            m = next[m];
+        } while (m != h);
+        do {
+            int following = next[m];
+            head[m] = -1;
+            for (int k = 4 * m, end = k + 4; k < end; k++) {
+                int q = nbr[k];
+                if (q >= 0 && color[q] != EMPTY) {
+                    addLiberty(head[q], m);
+                }
+            }
+            m = following;
+        } while (m != h);
+        return count;
+    }
+
+    private void addLiberty(int h, int p) {
+        libs[h]++;
+        libSum[h] += p;
+        libSumSq[h] += (long) p * p;
+    }
+
+    private void removeLiberty(int h, int p) {
+        libs[h]--;
+        libSum[h] -= p;
+        libSumSq[h] -= (long) p * p;
+    }
+}
@@ -1,162 +1,277 @@
 package boardgame;
 
-import java.util.*;
 //具体策略类-围棋规则
 public class GoRule implements RuleStrategy {
 
+    //劫的规则
+    public enum KoRule {
+        NONE,//不限制重复局面
+        POSITIONAL,//全局同形：不允许棋子分布与之前任一局面相同
+        SITUATIONAL//情境超级劫：不允许棋子分布和行棋方都与之前任一局面相同
+    }
+
     // 连续 pass 达 2 时触发终局
     private int consecutivePasses = 0;
 
+    // 棋链与气的增量追踪，绑定在当前对局的棋盘上
+    private GoGroups groups;
+    // 只读查询用的棋链，绑定在最近一次查询的其他棋盘（如分析用的副本）上，建好后不再修改
+    private volatile GoGroups scratch;
+
+    private final KoRule koRule;
+    private final GoScorer.ScoringRule scoringRule;
+    private final double komi;//贴目，加给白方
+    private GoScorer scorer;
+    // 双方提掉对方的子数，数目法计分使用
+    private int blackPrisoners = 0;
+    private int whitePrisoners = 0;
+    // 最近一次终局计分：黑减白的分差（含贴目）与双方得分（不含贴目）
+    private double lastScore;
+    private int lastBlackScore;
+    private int lastWhiteScore;
+    // 本局出现过的局面哈希（第一项为开局局面），用来判断超级劫
+    private final PositionHistory positions = new PositionHistory();
+
+    //默认使用全局同形禁止（避免循环劫导致对局无法结束）、数子法、贴 7.5 目
+    public GoRule() {
+        this(KoRule.POSITIONAL);
+    }
+
+    public GoRule(KoRule koRule) {
+        this(koRule, GoScorer.ScoringRule.AREA, 7.5);
+    }
+
+    public GoRule(KoRule koRule, GoScorer.ScoringRule scoringRule, double komi) {
+        this.koRule = koRule;
+        this.scoringRule = scoringRule;
+        this.komi = komi;
+    }
+
+    public KoRule getKoRule() {
+        return koRule;
+    }
+
+    public GoScorer.ScoringRule getScoringRule() {
+        return scoringRule;
+    }
+
+    public double getKomi() {
+        return komi;
+    }
+
+    //最近一次终局计分的分差（黑减白，含贴目），正数黑胜
+    public double getLastScore() {
+        return lastScore;
+    }
+
+    //最近一次终局计分中 player 的得分（不含贴目）
+    public int getLastScore(Piece player) {
+        return player == Piece.BLACK ? lastBlackScore : lastWhiteScore;
+    }
+
+    //黑方 / 白方提掉对方的子数
+    public int getPrisoners(Piece player) {
+        return player == Piece.BLACK ? blackPrisoners : whitePrisoners;
+    }
+
     @Override
     public MoveResult placePiece(Board board, int x, int y, Piece currentPlayer) {
         int size = board.getSize();
         //判断落子点是否是空位
         if (x < 0 || x >= size || y < 0 || y >= size) {
-            return new MoveResult(false, "落子超出棋盘范围。", GameStatus.ONGOING);
+            return MoveResult.of(MoveCode.OUT_OF_RANGE, GameStatus.ONGOING);
         }
-        if (!board.isEmpty(x, y)) {
-            return new MoveResult(false, "该位置已有棋子。", GameStatus.ONGOING);
+        int p = x * size + y;
+        GoGroups g = groupsFor(board);
+        MoveCode illegal = checkPlacement(board, g, p, currentPlayer);
+        long key = 0L;
+        if (illegal == null && koRule != KoRule.NONE) {
+            key = keyAfter(g, p, currentPlayer);
+            if (isRepeated(board, key, currentPlayer)) {
+                illegal = MoveCode.SUPERKO;
+            }
         }
+        if (illegal != null) {
+            return MoveResult.of(illegal, GameStatus.ONGOING);
+        }
+        ensureStarted(board, currentPlayer);
 
         // 一旦有真正棋子落下，重置 pass 计数
         consecutivePasses = 0;
 
-        // 先落子
-        board.set(x, y, currentPlayer);
-
-        // 提取周围对方无气的棋链
-        Piece opponent = currentPlayer.opposite();
-        //上下左右四个相邻位置
-        int[][] dirs = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
-        //建立集合
-        Set<String> removedStones = new HashSet<>();
-
-        //沿着四条直线的方向进行判断
-        for (int[] d : dirs) {
-            int nx = x + d[0];
-            int ny = y + d[1];
-
-            if (nx < 0 || nx >= size || ny < 0 || ny >= size) continue;
-            //如果是对方棋子，可以尝试进行判断，“提子”
-            if (board.get(nx, ny) == opponent) {
-                if (!hasLiberty(board, nx, ny, opponent, new boolean[size][size])) {
-                    // 没有气，该子可以被吃掉
-                    removedStones.addAll(removeGroup(board, nx, ny, opponent));
-                }
-            }
+        // 落子，同时合并己方棋链、提取周围对方无气的棋链
+        int captured = g.place(p, currentPlayer);
+        if (currentPlayer == Piece.BLACK) {
+            blackPrisoners += captured;
+        } else {
+            whitePrisoners += captured;
         }
+        positions.push(koRule == KoRule.NONE ? 0L : key);
 
-        // 如果当前位置是一个无气位置
-        if (!hasLiberty(board, x, y, currentPlayer, new boolean[size][size])) {
-            //如果这一步不能吃掉对方的棋子
-            if (removedStones.isEmpty()) {
-                // 自杀，不允许
-                board.set(x, y, Piece.EMPTY); // 撤销
-                return new MoveResult(false, "自杀手（无气且未提子），落子无效。", GameStatus.ONGOING);
-            }
+        // 简单规则：对局不会因单步结束，终局通过 pass 控制
+        return MoveResult.of(MoveCode.PLACED, GameStatus.ONGOING);
+    }
+
+    //只读判断落子是否合法：范围、空点、自杀、超级劫，不修改棋盘和局面历史
+    @Override
+    public boolean isLegal(Board board, int x, int y, Piece player) {
+        int size = board.getSize();
+        if (x < 0 || x >= size || y < 0 || y >= size) {
+            return false;
         }
+        return checkPoint(board, queryGroups(board), x * size + y, player) == null;
+    }
 
-        // 简单规则：对局不会因单步结束，终局通过 pass 控制
-        return new MoveResult(true, "落子成功。", GameStatus.ONGOING);
+    //枚举所有合法落点：逐个空点做 O(1) 的自杀判断和超级劫哈希查询，不试下
+    @Override
+    public int legalMoves(Board board, Piece player, int[] out) {
+        GoGroups g = queryGroups(board);
+        int count = 0;
+        for (int p = board.nextEmpty(0); p >= 0; p = board.nextEmpty(p + 1)) {
+            if (checkPoint(board, g, p, player) == null) {
+                out[count++] = p;
+            }
+        }
+        return count;
     }
 
     //允许玩家在这一回合不落子，
     //双方如果在同一回合都不落子之后，则游戏结束
     @Override
     public MoveResult pass(Board board, Piece currentPlayer) {
+        ensureStarted(board, currentPlayer);
+        positions.push(positionKey(board.getHash(), currentPlayer.opposite()));
         consecutivePasses++;
         //连续两次后，游戏结束
         if (consecutivePasses >= 2) {
-            // 终局：简单规则——谁在棋盘上的子更多谁赢
-            int blackCount = 0, whiteCount = 0;
-            int size = board.getSize();
-            //终局后，统计两种颜色的棋子数量
-            for (int i = 0; i < size; i++) {
-                for (int j = 0; j < size; j++) {
-                    Piece p = board.get(i, j);
-                    if (p == Piece.BLACK) blackCount++;
-                    else if (p == Piece.WHITE) whiteCount++;
+            // 终局：按数子法 / 数目法计分，白方加贴目
+            if (scorer == null) {
+                scorer = new GoScorer();
+            }
+            lastScore = scorer.score(board, scoringRule, komi, blackPrisoners, whitePrisoners);
+            lastBlackScore = scorer.blackScore(scoringRule, blackPrisoners);
+            lastWhiteScore = scorer.whiteScore(scoringRule, whitePrisoners);
+            GameStatus status = lastScore > 0 ? GameStatus.BLACK_WIN
+                    : lastScore < 0 ? GameStatus.WHITE_WIN : GameStatus.DRAW;
+            return MoveResult.of(MoveCode.SCORED, status);
+        } else {
+            //如果还没有达到两次，允许玩家选择虚着
+            return MoveResult.of(MoveCode.PASSED, GameStatus.ONGOING);
+        }
+    }
+
+    //悔掉最近一步：棋链追踪与这一步对应时直接按回退栈原地撤销（同时恢复棋盘），
+    //否则按记录把落子点清空、把被提的子放回；再弹出它产生的局面，恢复之前的连续 pass 数
+    @Override
+    public void undo(Board board, GameMemento record) {
+        if (!record.isPass()) {
+            if (groups != null && groups.getBoard() == board && groups.isInSync() && groups.undoDepth() > 0) {
+                groups.undo();
+            } else {
+                Piece opponent = record.getCurrentPlayer().opposite();
+                board.set(record.getPoint(), Piece.EMPTY);
+                for (int i = 0; i < record.getCapturedCount(); i++) {
+                    board.set(record.getCaptured(i), opponent);
                 }
             }
-            //如果黑色棋子多，黑色胜利
-            if (blackCount > whiteCount) {
-                return new MoveResult(true,
-                        "双方连续虚着，终局。盘上黑棋多，黑胜。", GameStatus.BLACK_WIN);
-            } else if (whiteCount > blackCount) {
-                return new MoveResult(true,
-                        "双方连续虚着，终局。盘上白棋多，白胜。", GameStatus.WHITE_WIN);
+            if (record.getCurrentPlayer() == Piece.BLACK) {
+                blackPrisoners -= record.getCapturedCount();
             } else {
-                return new MoveResult(true, "双方连续虚着，终局。子数相同，平局。", GameStatus.DRAW);
+                whitePrisoners -= record.getCapturedCount();
             }
-        } else {
-            //如果还没有达到两次，允许玩家选择虚着
-            return new MoveResult(true, "玩家 " + currentPlayer + " 选择虚着。", GameStatus.ONGOING);
         }
+        if (positions.size() > 1) {
+            positions.pop();
+        }
+        consecutivePasses = record.getPreviousPasses();
     }
 
+    @Override
+    public int getConsecutivePasses() {
+        return consecutivePasses;
+    }
 
-    //判断棋子是否是color颜色，是否处于有气状态，有气则返回true
-    private boolean hasLiberty(Board board, int x, int y, Piece color, boolean[][] visited) {
-        int size = board.getSize();
-        if (x < 0 || x >= size || y < 0 || y >= size) return false;
-
-        if (visited[x][y]) return false;
-        //首先默认有气
-        visited[x][y] = true;
-
-        Piece p = board.get(x, y);
-        //首先该棋子不是我们希望判断的颜色
-        if (p != color) return false;
-
-        int[][] dirs = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
-        for (int[] d : dirs) {
-            int nx = x + d[0];
-            int ny = y + d[1];
-            if (nx < 0 || nx >= size || ny < 0 || ny >= size) continue;
-            Piece np = board.get(nx, ny);
-            if (np == Piece.EMPTY) {
-                return true;
-            }
+    @Override
+    public int getLastCaptureCount() {
+        return groups == null ? 0 : groups.getCapturedCount();
+    }
+
+    @Override
+    public int getLastCapture(int i) {
+        return groups.getCaptured(i);
+    }
+
+    //判断点 p 能否落子，合法返回 null，否则返回失败的结果码；只读，不修改任何字段
+    private MoveCode checkPoint(Board board, GoGroups g, int p, Piece player) {
+        MoveCode illegal = checkPlacement(board, g, p, player);
+        if (illegal == null && koRule != KoRule.NONE && isRepeated(board, keyAfter(g, p, player), player)) {
+            illegal = MoveCode.SUPERKO;
         }
-        for (int[] d : dirs) {
-            int nx = x + d[0];
-            int ny = y + d[1];
-            if (nx < 0 || nx >= size || ny < 0 || ny >= size) continue;
-            if (!visited[nx][ny] && board.get(nx, ny) == color) {
-                if (hasLiberty(board, nx, ny, color, visited)) return true;
-            }
+        return illegal;
+    }
+
+    //空点与自杀判断：落子后自身无气且不能提掉对方，属于自杀，不允许（落子前即可判断，无需试下再撤销）
+    private MoveCode checkPlacement(Board board, GoGroups g, int p, Piece player) {
+        if (!board.isEmpty(p)) {
+            return MoveCode.OCCUPIED;
         }
-        return false;
+        return g.isSuicide(p, player) ? MoveCode.SUICIDE : null;
     }
 
-    //提子操作
-    private Set<String> removeGroup(Board board, int x, int y, Piece color) {
-        int size = board.getSize();
-        Set<String> removed = new HashSet<>();
-        Deque<int[]> stack = new ArrayDeque<>();
-        boolean[][] visited = new boolean[size][size];//初始化为true
-        stack.push(new int[]{x, y});
-        visited[x][y] = true;
-
-        while (!stack.isEmpty()) {//
-            int[] cur = stack.pop();
-            int cx = cur[0], cy = cur[1];
-            if (board.get(cx, cy) == color) {//如果确实是对方颜色
-                board.set(cx, cy, Piece.EMPTY);//该子提走
-                removed.add(cx + "," + cy);
-                int[][] dirs = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
-                for (int[] d : dirs) {
-                    int nx = cx + d[0];
-                    int ny = cy + d[1];
-                    if (nx < 0 || nx >= size || ny < 0 || ny >= size) continue;
-
-                    if (!visited[nx][ny] && board.get(nx, ny) == color) {
-                        visited[nx][ny] = true;
-                        stack.push(new int[]{nx, ny});
-                    }
-                }
+    //player 在 p 落子（含提子）后局面的键，只读计算，无需试下
+    private long keyAfter(GoGroups g, int p, Piece player) {
+        return positionKey(g.hashAfter(p, player), player.opposite());
+    }
+
+    //超级劫：落子后局面的键不能在历史中出现过；还没有历史时与当前局面比较
+    private boolean isRepeated(Board board, long key, Piece player) {
+        return positions.size() == 0
+                ? key == positionKey(board.getHash(), player)
+                : positions.contains(key);
+    }
+
+    //第一次行棋前记录开局局面
+    private void ensureStarted(Board board, Piece currentPlayer) {
+        if (positions.size() == 0) {
+            positions.push(positionKey(board.getHash(), currentPlayer));
+        }
+    }
+
+    //超级劫比较用的键：全局同形只看棋子，情境超级劫再加上行棋方
+    private long positionKey(long boardHash, Piece toMove) {
+        return koRule == KoRule.SITUATIONAL ? boardHash ^ Zobrist.sideToMove(toMove) : boardHash;
+    }
+
+    //取得与棋盘绑定的棋链追踪；棋盘被整体替换（如读档、悔棋恢复快照）时重建，
+    //棋盘被外部直接修改过（哈希对不上）时按棋盘内容重建
+    private GoGroups groupsFor(Board board) {
+        GoGroups s = scratch;
+        if (groups == null || groups.getBoard() != board) {
+            //查询时已为这块棋盘建好的棋链直接接管
+            if (s != null && s.getBoard() == board && s.isInSync()) {
+                groups = s;
+                scratch = null;
+            } else {
+                groups = new GoGroups(board);
             }
+        } else if (!groups.isInSync()) {
+            groups.rebuild();
+        }
+        return groups;
+    }
+
+    //只读查询用的棋链：对局棋链与棋盘一致时直接使用，否则用查询专用的棋链，不动对局棋链和它的回退栈；
+    //查询专用的棋链建好后不再修改，对不上时整个换新的，多个线程同时查询也不会互相干扰
+    private GoGroups queryGroups(Board board) {
+        GoGroups g = groups;
+        if (g != null && g.getBoard() == board && g.isInSync()) {
+            return g;
+        }
+        g = scratch;
+        if (g == null || g.getBoard() != board || !g.isInSync()) {
+            g = new GoGroups(board);
+            scratch = g;
         }
-        return removed;
+        return g;
     }
 }
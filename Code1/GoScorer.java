@@ -0,0 +1,119 @@
+package boardgame;
+
+import java.util.Arrays;
+
+//围棋终局计分
+//一次线性扫描：对每块尚未访问的空白区域用显式栈做洪水填充，记录它接触到的颜色，
+//只接触一种颜色的空白区域归该方所有，接触两种颜色的为公共区域（单官）。
+//访问标记使用代数计数（generation），缓冲区在多次计分之间复用，计分过程不分配内存，
+//可以在对弈程序的每个模拟终局调用。不判断死活：盘上的棋子都视为活棋（Tromp-Taylor 规则）。
+public class GoScorer {
+    //计分规则
+    public enum ScoringRule {
+        AREA,//数子法（Tromp-Taylor）：盘上棋子 + 围住的空点
+        TERRITORY//数目法：围住的空点 + 提掉对方的子数
+    }
+
+    private static final int MAX_POINTS = 19 * 19;
+    private static final int TOUCH_BLACK = 1;
+    private static final int TOUCH_WHITE = 2;
+    private static final Piece[] PIECES = Piece.values();
+
+    private final int[] stack = new int[MAX_POINTS];//洪水填充用的显式栈
+    private final int[] region = new int[MAX_POINTS];//当前区域的点
+    private final int[] visited = new int[MAX_POINTS];//等于 generation 表示本次已访问
+    private final byte[] owner = new byte[MAX_POINTS];//每个点的归属：Piece 的 ordinal
+    private int generation = 0;
+
+    //最近一次 compute 的统计结果
+    private int blackStones;
+    private int whiteStones;
+    private int blackTerritory;
+    private int whiteTerritory;
+
+    //计算每个点的归属以及双方棋子数、地盘数
+    public void compute(Board board) {
+        int[] nbr = board.neighborTable();
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            generation = 1;
+        }
+        blackStones = board.count(Piece.BLACK);
+        whiteStones = board.count(Piece.WHITE);
+        blackTerritory = 0;
+        whiteTerritory = 0;
+
+        for (int p = board.nextPoint(Piece.BLACK, 0); p >= 0; p = board.nextPoint(Piece.BLACK, p + 1)) {
+            owner[p] = (byte) Piece.BLACK.ordinal();
+        }
+        for (int p = board.nextPoint(Piece.WHITE, 0); p >= 0; p = board.nextPoint(Piece.WHITE, p + 1)) {
+            owner[p] = (byte) Piece.WHITE.ordinal();
+        }
+        for (int start = board.nextEmpty(0); start >= 0; start = board.nextEmpty(start + 1)) {
+            if (visited[start] == generation) continue;
+            //填充 start 所在的空白区域
+            int top = 0, count = 0, touch = 0;
+            stack[top++] = start;
+            visited[start] = generation;
+            while (top > 0) {
+                int p = stack[--top];
+                region[count++] = p;
+                for (int k = 4 * p, end = k + 4; k < end; k++) {
+                    int q = nbr[k];
+                    if (q < 0) continue;
+                    Piece c = board.get(q);
+                    if (c == Piece.EMPTY) {
+                        if (visited[q] != generation) {
+                            visited[q] = generation;
+                            stack[top++] = q;
+                        }
+                    } else {
+                        touch |= c == Piece.BLACK ? TOUCH_BLACK : TOUCH_WHITE;
+                    }
+                }
+            }
+            Piece regionOwner = Piece.EMPTY;
+            if (touch == TOUCH_BLACK) {
+                regionOwner = Piece.BLACK;
+                blackTerritory += count;
+            } else if (touch == TOUCH_WHITE) {
+                regionOwner = Piece.WHITE;
+                whiteTerritory += count;
+            }
+            byte o = (byte) regionOwner.ordinal();
+            for (int i = 0; i < count; i++) {
+                owner[region[i]] = o;
+            }
+        }
+    }
+
+    //计分并返回黑方减白方的分差（正数黑胜，负数白胜），白方加贴目 komi
+    //blackPrisoners / whitePrisoners 为黑方 / 白方提掉的对方棋子数，只在数目法中使用
+    public double score(Board board, ScoringRule rule, double komi, int blackPrisoners, int whitePrisoners) {
+        compute(board);
+        return blackScore(rule, blackPrisoners) - whiteScore(rule, whitePrisoners) - komi;
+    }
+
+    //最近一次 compute 后黑方的得分（不含贴目）
+    public int blackScore(ScoringRule rule, int blackPrisoners) {
+        return rule == ScoringRule.AREA ? blackStones + blackTerritory : blackTerritory + blackPrisoners;
+    }
+
+    //最近一次 compute 后白方的得分（不含贴目）
+    public int whiteScore(ScoringRule rule, int whitePrisoners) {
+        return rule == ScoringRule.AREA ? whiteStones + whiteTerritory : whiteTerritory + whitePrisoners;
+    }
+
+    //最近一次 compute 后点 point 的归属：棋子为其颜色，空点为围住它的一方，公共区域为 EMPTY
+    public Piece ownerOf(int point) {
+        return PIECES[owner[point]];
+    }
+
+    public int getBlackTerritory() {
+        return blackTerritory;
+    }
+
+    public int getWhiteTerritory() {
+        return whiteTerritory;
+    }
+}
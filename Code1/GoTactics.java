@@ -0,0 +1,294 @@
+package boardgame;
+
+import java.util.Arrays;
+
+//围棋战术计算：征子、枷吃等有限范围的吃子 / 逃子搜索，以及按气数判断的简单对杀
+//在自己的一块草稿棋盘上用 GoGroups 的 place / undo 试下和撤销，每个搜索节点不分配内存；
+//查询的局面与上一次相同（棋盘哈希相同）时不重新复制棋盘。
+//搜索只在目标棋链不超过 2 口气时继续：攻方走目标的气和气旁的点（枷），守方长气或提掉叫吃它的棋子，
+//目标长到 3 口气即算逃出。只判简单劫；超出深度或节点上限时按"吃不掉"处理，结论偏保守。
+public class GoTactics {
+    //对杀结果，以先走的一方为准
+    public enum RaceResult {
+        WIN,//先走方吃掉对方
+        LOSS,//先走方被吃
+        SEKI//双活
+    }
+
+    private static final int MAX_DEPTH = 120;//19 路上最长的征子约 80 手
+    private static final int MAX_CANDIDATES = 16;
+    private static final int NET_DEPTH = 4;//只在前几手考虑枷，更深处只读征子（叫吃 / 长气），否则分支数随征子长度指数增长
+    private static final int DEFAULT_MAX_NODES = 20000;
+
+    private final int maxNodes;
+    private Board scratch;
+    private GoGroups groups;
+    private int[] nbr;
+    private final int[][] moveBuf = new int[MAX_DEPTH + 1][MAX_CANDIDATES];
+    private final int[] koPoint = new int[MAX_DEPTH + 2];//koPoint[d]：第 d 层行棋方不能立即提回的劫
+    private int[] visited;//取候选时标记已检查过的棋链，值等于 visitStamp 表示本次已检查
+    private int visitStamp = 0;
+    private int nodes;
+    private int lastMove = -1;
+
+    public GoTactics() {
+        this(DEFAULT_MAX_NODES);
+    }
+
+    //maxNodes：每次查询最多展开的节点数
+    public GoTactics(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    //最近一次 isCapturable / canEscape 找到的关键着法（吃子点或逃子点），没有为 -1
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    //最近一次查询展开的节点数
+    public int getLastNodes() {
+        return nodes;
+    }
+
+    //point 所在棋链被对方先走时能否吃掉；能吃时 getLastMove 为吃子的第一手
+    public boolean isCapturable(Board board, int point) {
+        load(board, point);
+        koPoint[0] = -1;
+        return attack(point, 0);
+    }
+
+    //point 所在棋链由己方先走时能否逃出；能逃时 getLastMove 为逃子的着法（不走也不会被吃时为 -1）
+    public boolean canEscape(Board board, int point) {
+        load(board, point);
+        koPoint[0] = -1;
+        return defend(point, 0);
+    }
+
+    //player 在 move 落子后，这颗子所在的棋链（至少两子）是否只有不超过 2 口气且会被对方吃掉，
+    //用于在对弈程序中排除"逃不出的征子"；move 不能落子时返回 false
+    public boolean isFutileExtension(Board board, int move, Piece player) {
+        load(board, -1);
+        if (!scratch.isEmpty(move) || groups.isSuicide(move, player)) return false;
+        groups.place(move, player);
+        boolean futile = groups.chainSize(move) >= 2 && groups.liberties(move) <= 2 && captureAfterPlace(move);
+        groups.undo();
+        return futile;
+    }
+
+    //point 所在棋链的链头（同一棋链的各个棋子返回同一个点）
+    public int chainHead(Board board, int point) {
+        load(board, point);
+        return groups.chainHead(point);
+    }
+
+    //point 所在棋链的气数
+    public int liberties(Board board, int point) {
+        load(board, point);
+        return groups.liberties(point);
+    }
+
+    //无眼对杀：a、b 为相邻的两块异色棋，a 的一方先走，只按外气与公气的数目推算，不考虑眼和扑、紧气劫等手段
+    public RaceResult semeai(Board board, int a, int b) {
+        load(board, a);
+        if (scratch.get(b) != scratch.get(a).opposite()) {
+            throw new IllegalArgumentException("Chains must be of opposite colours.");
+        }
+        int shared = 0;
+        for (int l = groups.nextLiberty(a, 0); l >= 0; l = groups.nextLiberty(a, l + 1)) {
+            if (isLibertyOf(b, l)) shared++;
+        }
+        //own 为先走方的外气，other 为后走方的外气
+        int own = groups.liberties(a) - shared;
+        int other = groups.liberties(b) - shared;
+        boolean first = true;
+        int passes = 0;
+        while (passes < 2) {
+            int mine = first ? own : other;
+            int theirs = first ? other : own;
+            if (theirs + shared == 1) {
+                return first ? RaceResult.WIN : RaceResult.LOSS;
+            }
+            if (theirs > 0) {
+                theirs--;//紧对方的外气
+                passes = 0;
+            } else if (shared > 0 && mine + shared - 1 >= 2) {
+                shared--;//紧公气后自己不被叫吃
+                passes = 0;
+            } else {
+                passes++;
+            }
+            if (first) other = theirs;
+            else own = theirs;
+            first = !first;
+        }
+        return RaceResult.SEKI;
+    }
+
+    //攻方先走：目标只剩一口气时直接提，超过 2 口气时算吃不掉
+    private boolean attack(int t, int depth) {
+        int libs = groups.liberties(t);
+        Piece attacker = scratch.get(t).opposite();
+        if (libs == 1) {
+            int l = groups.nextLiberty(t, 0);
+            if (l != koPoint[depth]) {
+                if (depth == 0) lastMove = l;
+                return true;
+            }
+        }
+        if (libs > 2 || depth >= MAX_DEPTH || ++nodes > maxNodes) return false;
+        int[] moves = moveBuf[depth];
+        int count = attackCandidates(t, moves, depth < NET_DEPTH);
+        for (int i = 0; i < count; i++) {
+            int m = moves[i];
+            if (!isLegal(m, attacker, depth)) continue;
+            play(m, attacker, depth);
+            boolean captured = !defend(t, depth + 1);
+            groups.undo();
+            if (captured) {
+                if (depth == 0) lastMove = m;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //守方先走：长气或提掉叫吃目标的棋子；不走也吃不掉时同样算逃出
+    private boolean defend(int t, int depth) {
+        int libs = groups.liberties(t);
+        if (libs >= 3) {
+            if (depth == 0) lastMove = -1;
+            return true;
+        }
+        if (depth >= MAX_DEPTH || ++nodes > maxNodes) return true;
+        Piece defender = scratch.get(t);
+        int[] moves = moveBuf[depth];
+        int count = defenseCandidates(t, moves);
+        for (int i = 0; i < count; i++) {
+            int m = moves[i];
+            if (!isLegal(m, defender, depth)) continue;
+            play(m, defender, depth);
+            boolean safe = !attack(t, depth + 1);
+            groups.undo();
+            if (safe) {
+                if (depth == 0) lastMove = m;
+                return true;
+            }
+        }
+        if (libs == 2) {
+            //脱先：攻方先走也吃不掉
+            koPoint[depth + 1] = -1;
+            if (!attack(t, depth + 1)) {
+                if (depth == 0) lastMove = -1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //在 move 落子后由对方先走，能否吃掉 move 所在的棋链
+    private boolean captureAfterPlace(int move) {
+        koPoint[1] = -1;
+        return attack(move, 1);
+    }
+
+    //攻方候选：目标的气，nets 为 true 时再加上气旁边的空点（枷）
+    private int attackCandidates(int t, int[] moves, boolean nets) {
+        int count = 0;
+        for (int l = groups.nextLiberty(t, 0); l >= 0; l = groups.nextLiberty(t, l + 1)) {
+            count = add(moves, count, l);
+        }
+        if (!nets) return count;
+        int libs = count;
+        for (int i = 0; i < libs; i++) {
+            for (int k = 4 * moves[i], end = k + 4; k < end; k++) {
+                int q = nbr[k];
+                if (q >= 0 && scratch.isEmpty(q)) {
+                    count = add(moves, count, q);
+                }
+            }
+        }
+        return count;
+    }
+
+    //守方候选：提掉与目标相邻、只剩一口气的对方棋链，然后是目标自己的气
+    private int defenseCandidates(int t, int[] moves) {
+        int count = 0;
+        Piece attacker = scratch.get(t).opposite();
+        if (++visitStamp == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            visitStamp = 1;
+        }
+        int stamp = visitStamp;
+        int m = t;
+        do {
+            for (int k = 4 * m, end = k + 4; k < end; k++) {
+                int q = nbr[k];
+                if (q < 0 || scratch.get(q) != attacker) continue;
+                int h = groups.chainHead(q);
+                if (visited[h] == stamp) continue;//同一条对方棋链只数一次气
+                visited[h] = stamp;
+                if (groups.liberties(h) == 1) {
+                    count = add(moves, count, groups.nextLiberty(h, 0));
+                }
+            }
+            m = groups.nextInChain(m);
+        } while (m != t && count < MAX_CANDIDATES);
+        for (int l = groups.nextLiberty(t, 0); l >= 0; l = groups.nextLiberty(t, l + 1)) {
+            count = add(moves, count, l);
+        }
+        return count;
+    }
+
+    //去重追加，满了丢弃
+    private static int add(int[] moves, int count, int p) {
+        if (count == MAX_CANDIDATES) return count;
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == p) return count;
+        }
+        moves[count] = p;
+        return count + 1;
+    }
+
+    private boolean isLegal(int p, Piece color, int depth) {
+        return scratch.isEmpty(p) && p != koPoint[depth] && !groups.isSuicide(p, color);
+    }
+
+    //落子并记下对方下一手不能提回的劫
+    private void play(int p, Piece color, int depth) {
+        int captured = groups.place(p, color);
+        koPoint[depth + 1] = captured == 1 && groups.chainSize(p) == 1 && groups.liberties(p) == 1
+                ? groups.getCaptured(0) : -1;
+    }
+
+    private boolean isLibertyOf(int chain, int p) {
+        for (int k = 4 * p, end = k + 4; k < end; k++) {
+            int q = nbr[k];
+            if (q >= 0 && groups.chainHead(q) == groups.chainHead(chain)) return true;
+        }
+        return false;
+    }
+
+    //把 board 复制到草稿棋盘；point 不为 -1 时必须有棋子
+    private void load(Board board, int point) {
+        if (point >= 0 && board.isEmpty(point)) {
+            throw new IllegalArgumentException("No stone at point " + point + ".");
+        }
+        nodes = 0;
+        lastMove = -1;
+        if (scratch == null || scratch.getSize() != board.getSize()) {
+            scratch = board.clone();
+            groups = new GoGroups(scratch);
+            nbr = scratch.neighborTable();
+            visited = new int[board.getPointCount()];
+            return;
+        }
+        if (scratch.getHash() == board.getHash()) return;
+        for (int p = 0, n = board.getPointCount(); p < n; p++) {
+            Piece c = board.get(p);
+            if (scratch.get(p) != c) {
+                scratch.set(p, c);
+            }
+        }
+        groups.rebuild();
+    }
+}
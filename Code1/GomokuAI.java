@@ -0,0 +1,344 @@
+package boardgame;
+
+import java.util.Arrays;
+
+//五子棋电脑玩家
+//负极大值 + alpha-beta 剪枝，迭代加深，置换表，按棋型分排序着法，每步有硬性的时间上限。
+//搜索在自己的数组上做落子/撤销：棋盘按所有"五元组"（任意方向上连续 5 个点）统计双方子数，
+//落子时只更新经过该点的至多 20 个五元组；GomokuPatterns 同时增量维护各空点的棋型分，
+//局面评估取两者之和，候选着法取棋型分最高的若干点。
+public class GomokuAI implements ComputerPlayer {
+    private static final int WIN = 100_000_000;
+    private static final int INF = WIN + 1;
+    private static final int MAX_PLY = 64;
+    private static final int MAX_CANDIDATES = 14;//每层最多展开的着法数
+    private static final int PATTERN_WEIGHT = 2;
+    private static final int[][] DIRS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+    //五元组中只有一方的 k 颗子时的局面分
+    private static final int[] TUPLE_VALUE = {0, 2, 30, 600, 20000, 0};
+
+    private final long timeBudgetNanos;
+    private final TranspositionTable table;
+
+    //当前棋盘尺寸下的五元组几何：pointWindows[pointWindowStart[p] .. pointWindowStart[p + 1]) 为经过 p 的五元组
+    private int size = -1;
+    private int n;
+    private int[] pointWindowStart;
+    private int[] pointWindows;
+    private int windowCount;
+
+    //搜索状态
+    private byte[] cells;//0 空，1 黑，2 白
+    private int[] blackInWindow;
+    private int[] whiteInWindow;
+    private int[] near;//5x5 邻域内的棋子数，大于 0 的空点才作为候选着法
+    private int evalBlack;//黑方视角的局面分
+    private long hash;//与 Board.getHash() 一致的棋子哈希
+    private int stones;
+    private GomokuPatterns patterns;//棋型评估，用于着法排序
+    private int[][] moveBuf;
+    private long deadline;
+    private boolean aborted;
+    private long nodes;
+    private int completedDepth;
+
+    //默认每步 0.8 秒、16MB 置换表
+    public GomokuAI() {
+        this(800, 16);
+    }
+
+    public GomokuAI(long timeBudgetMillis, int tableMegabytes) {
+        this(timeBudgetMillis, new TranspositionTable(tableMegabytes));
+    }
+
+    //使用外部提供的置换表，多个电脑玩家（或多个线程）可以共享同一张表
+    public GomokuAI(long timeBudgetMillis, TranspositionTable table) {
+        this.timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+        this.table = table;
+    }
+
+    @Override
+    public String getName() {
+        return "五子棋 AI";
+    }
+
+    @Override
+    public String getStatistics() {
+        return "深度 " + completedDepth + "，节点 " + nodes;
+    }
+
+    //最近一次搜索完成的深度与访问的节点数
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public int chooseMove(Board board, RuleStrategy rule, Piece player) {
+        long start = System.nanoTime();
+        deadline = start + timeBudgetNanos;
+        load(board);
+        table.newSearch();
+        int side = player == Piece.BLACK ? 1 : 2;
+        if (stones == 0) {
+            return (size / 2) * size + size / 2;//空棋盘下天元
+        }
+        nodes = 0;
+        aborted = false;
+        completedDepth = 0;
+
+        int[] moves = moveBuf[0];
+        int count = generate(side, moves, -1);
+        if (count == 0) {
+            return board.nextEmpty(0);
+        }
+        int best = moves[0];
+        for (int depth = 1; depth <= MAX_PLY - 1; depth++) {
+            int alpha = -INF;
+            int iterationBest = -1;
+            for (int i = 0; i < count; i++) {
+                int p = moves[i];
+                int score;
+                if (make(p, side)) {
+                    score = WIN;
+                } else {
+                    score = -search(depth - 1, -INF, -alpha, 1, 3 - side);
+                }
+                unmake(p, side);
+                if (aborted) break;
+                if (score > alpha) {
+                    alpha = score;
+                    iterationBest = p;
+                }
+            }
+            if (aborted) break;
+            best = iterationBest;
+            completedDepth = depth;
+            //把本轮最佳着法移到最前，下一轮先搜
+            for (int i = 0; i < count; i++) {
+                if (moves[i] == best) {
+                    System.arraycopy(moves, 0, moves, 1, i);
+                    moves[0] = best;
+                    break;
+                }
+            }
+            if (alpha >= WIN - MAX_PLY || alpha <= -WIN + MAX_PLY) break;//已经算出胜负
+            //剩余时间不够再加深一层时提前结束
+            if (System.nanoTime() - start > timeBudgetNanos / 3) break;
+        }
+        return best;
+    }
+
+    //负极大值搜索，返回行棋方 side 视角的分数
+    private int search(int depth, int alpha, int beta, int ply, int side) {
+        if ((++nodes & 1023) == 0 && System.nanoTime() > deadline) {
+            aborted = true;
+        }
+        if (aborted) return 0;
+        if (depth <= 0 || ply >= MAX_PLY - 1) {
+            return evaluate(side, ply);
+        }
+
+        long key = hash ^ Zobrist.sideToMove(side == 1 ? Piece.BLACK : Piece.WHITE);
+        long entry = table.probe(key);
+        int ttMove = -1;
+        if (entry != 0) {
+            ttMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int s = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && s >= beta)
+                        || (bound == TranspositionTable.UPPER && s <= alpha)) {
+                    return s;
+                }
+            }
+        }
+
+        int[] moves = moveBuf[ply];
+        int count = generate(side, moves, ttMove);
+        if (count == 0) return 0;//棋盘已满，和棋
+
+        int alphaOrig = alpha;
+        int best = -INF;
+        int bestMove = moves[0];
+        for (int i = 0; i < count; i++) {
+            int p = moves[i];
+            int score;
+            if (make(p, side)) {
+                score = WIN - ply;
+            } else {
+                score = -search(depth - 1, -beta, -alpha, ply + 1, 3 - side);
+            }
+            unmake(p, side);
+            if (aborted) return 0;
+            if (score > best) {
+                best = score;
+                bestMove = p;
+            }
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) break;
+        }
+        int bound = best <= alphaOrig ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    //叶节点评估：行棋方有成五点即胜；否则为五元组分与棋型分之和
+    private int evaluate(int side, int ply) {
+        if (patterns.fivePointCount(side) > 0) {
+            return WIN - ply - 1;
+        }
+        return (side == 1 ? evalBlack : -evalBlack) + (int) patterns.evaluate(side) / PATTERN_WEIGHT;
+    }
+
+    //生成候选着法：由棋型评估给出按进攻 + 防守分排序的前 MAX_CANDIDATES 个点（含必须成五 / 必须挡五的剪裁），
+    //置换表着法排最前
+    private int generate(int side, int[] moves, int ttMove) {
+        int count = patterns.candidates(side, moves, MAX_CANDIDATES);
+        if (count == 0) {
+            //双方在任何空点都已连不成五：取已有棋子附近的空点
+            for (int p = 0; p < n && count < MAX_CANDIDATES; p++) {
+                if (cells[p] == 0 && near[p] > 0) moves[count++] = p;
+            }
+        }
+        for (int i = 1; i < count; i++) {
+            if (moves[i] == ttMove) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = ttMove;
+                break;
+            }
+        }
+        return count;
+    }
+
+    //落子并增量更新，连成五子返回 true
+    private boolean make(int p, int side) {
+        cells[p] = (byte) side;
+        hash ^= Zobrist.key(side == 1 ? Piece.BLACK : Piece.WHITE, p);
+        stones++;
+        boolean five = false;
+        for (int i = pointWindowStart[p], end = pointWindowStart[p + 1]; i < end; i++) {
+            int w = pointWindows[i];
+            int b = blackInWindow[w], wh = whiteInWindow[w];
+            evalBlack -= windowValue(b, wh);
+            if (side == 1) b = ++blackInWindow[w];
+            else wh = ++whiteInWindow[w];
+            evalBlack += windowValue(b, wh);
+            if (b == 5 || wh == 5) five = true;
+        }
+        updateNear(p, 1);
+        patterns.place(p, side);
+        return five;
+    }
+
+    private void unmake(int p, int side) {
+        cells[p] = 0;
+        hash ^= Zobrist.key(side == 1 ? Piece.BLACK : Piece.WHITE, p);
+        stones--;
+        for (int i = pointWindowStart[p], end = pointWindowStart[p + 1]; i < end; i++) {
+            int w = pointWindows[i];
+            int b = blackInWindow[w], wh = whiteInWindow[w];
+            evalBlack -= windowValue(b, wh);
+            if (side == 1) b = --blackInWindow[w];
+            else wh = --whiteInWindow[w];
+            evalBlack += windowValue(b, wh);
+        }
+        updateNear(p, -1);
+        patterns.remove(p);
+    }
+
+    private static int windowValue(int black, int white) {
+        if (white == 0) return TUPLE_VALUE[black];
+        if (black == 0) return -TUPLE_VALUE[white];
+        return 0;
+    }
+
+    private void updateNear(int p, int delta) {
+        int x = p / size, y = p % size;
+        for (int i = Math.max(0, x - 2); i <= Math.min(size - 1, x + 2); i++) {
+            for (int j = Math.max(0, y - 2); j <= Math.min(size - 1, y + 2); j++) {
+                near[i * size + j] += delta;
+            }
+        }
+    }
+
+    //胜负分按距根节点的步数存入置换表，取出时换算回当前层
+    private static int toTable(int score, int ply) {
+        if (score >= WIN - MAX_PLY) return score + ply;
+        if (score <= -WIN + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN - MAX_PLY) return score - ply;
+        if (score <= -WIN + MAX_PLY) return score + ply;
+        return score;
+    }
+
+    //把棋盘复制到搜索数组中
+    private void load(Board board) {
+        if (board.getSize() != size) {
+            prepare(board.getSize());
+        }
+        Arrays.fill(cells, (byte) 0);
+        Arrays.fill(blackInWindow, 0);
+        Arrays.fill(whiteInWindow, 0);
+        Arrays.fill(near, 0);
+        patterns.clear();
+        evalBlack = 0;
+        hash = Zobrist.emptyBoard(size);
+        stones = 0;
+        for (int p = board.nextPoint(Piece.BLACK, 0); p >= 0; p = board.nextPoint(Piece.BLACK, p + 1)) {
+            make(p, 1);
+        }
+        for (int p = board.nextPoint(Piece.WHITE, 0); p >= 0; p = board.nextPoint(Piece.WHITE, p + 1)) {
+            make(p, 2);
+        }
+    }
+
+    //为新的棋盘尺寸建立五元组几何与缓冲区
+    private void prepare(int newSize) {
+        size = newSize;
+        n = size * size;
+        int[] counts = new int[n + 1];
+        int[][] windowCells = new int[4 * n][];
+        windowCount = 0;
+        for (int[] d : DIRS) {
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    int ex = x + 4 * d[0], ey = y + 4 * d[1];
+                    if (ex < 0 || ex >= size || ey < 0 || ey >= size) continue;
+                    int[] c = new int[5];
+                    for (int k = 0; k < 5; k++) {
+                        c[k] = (x + k * d[0]) * size + (y + k * d[1]);
+                        counts[c[k]]++;
+                    }
+                    windowCells[windowCount++] = c;
+                }
+            }
+        }
+        pointWindowStart = new int[n + 1];
+        for (int p = 0; p < n; p++) {
+            pointWindowStart[p + 1] = pointWindowStart[p] + counts[p];
+        }
+        pointWindows = new int[pointWindowStart[n]];
+        int[] fill = new int[n];
+        for (int w = 0; w < windowCount; w++) {
+            for (int p : windowCells[w]) {
+                pointWindows[pointWindowStart[p] + fill[p]++] = w;
+            }
+        }
+        cells = new byte[n];
+        blackInWindow = new int[windowCount];
+        whiteInWindow = new int[windowCount];
+        near = new int[n];
+        moveBuf = new int[MAX_PLY][MAX_CANDIDATES];
+        patterns = new GomokuPatterns(size);
+    }
+}
@@ -0,0 +1,334 @@
+package boardgame;
+
+import java.util.Arrays;
+
+//五子棋棋型评估
+//对每个点的每个方向维护一个 16 位的邻域编码：该方向上前后各 4 个点，每点 2 位（0 空，1 黑，2 白，3 棋盘外）。
+//预先对全部 65536 种编码求出"在中心落子后这一方向形成的棋型"（活四、冲四、活三……），查表即得；
+//落子/提走一颗子只影响它所在 4 条线上前后 4 格内的至多 32 个点，只重算这些点的编码和分值，
+//各空点的分值之和随之增量维护，因此局面分和候选着法的评分在每一步都是常数量级的工作。
+public class GomokuPatterns {
+    //棋型，数值越大越强
+    public static final int NONE = 0;
+    public static final int TWO = 1;//眠二
+    public static final int OPEN_TWO = 2;//活二
+    public static final int THREE = 3;//眠三
+    public static final int OPEN_THREE = 4;//活三
+    public static final int FOUR = 5;//冲四
+    public static final int OPEN_FOUR = 6;//活四（或同一条线上的两个成五点）
+    public static final int FIVE = 7;//成五
+
+    //单一方向棋型的分值
+    private static final int[] PATTERN_SCORE = {0, 3, 10, 12, 60, 80, 10000, 100000};
+    private static final int DOUBLE_FOUR = 10000;//双冲四
+    private static final int FOUR_THREE = 5000;//冲四活三
+    private static final int DOUBLE_THREE = 3000;//双活三
+
+    private static final int[][] DIRS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+    private static final int WALL = 3;
+
+    //PATTERN[颜色][编码]：该颜色在中心落子后这一方向的棋型
+    private static final byte[][] PATTERN = new byte[3][1 << 16];
+
+    static {
+        byte[] memo = new byte[19683];//3^9 种线型，0 表示尚未计算
+        int[] cells = new int[9];
+        for (int c = 1; c <= 2; c++) {
+            for (int key = 0; key < 1 << 16; key++) {
+                for (int slot = 0; slot < 8; slot++) {
+                    int v = (key >>> (2 * slot)) & 3;
+                    cells[slot < 4 ? slot : slot + 1] = v == 0 ? 0 : v == c ? 1 : 2;
+                }
+                cells[4] = 1;
+                PATTERN[c][key] = (byte) classify(cells, memo);
+            }
+        }
+    }
+
+    private final int size;
+    private final int n;
+    private final int[] emptyKeys;//空棋盘上各点的编码（只有棋盘外的位）
+    //aroundStart[p] .. aroundStart[p + 1]：p 落子后编码会变化的点 aroundPoint，以及需要改写的编码下标与位移
+    private final int[] aroundStart;
+    private final int[] aroundPoint;
+    private final int[] aroundKey;
+    private final int[] aroundShift;
+
+    private final byte[] color;
+    private final int[] keys;//keys[4 * p + 方向]
+    private final int[][] score;//score[颜色][p]：该颜色在空点 p 落子的分值，非空点为 0
+    private final long[] total = new long[3];//各颜色所有空点分值之和
+    private final int[] fivePoints = new int[3];//各颜色能直接成五的空点个数
+    private int[] ranks = new int[32];//candidates 的排序缓冲区
+
+    public GomokuPatterns(int size) {
+        this.size = size;
+        this.n = size * size;
+        this.emptyKeys = new int[4 * n];
+        int[] counts = new int[n + 1];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                int p = x * size + y;
+                for (int d = 0; d < 4; d++) {
+                    for (int o = -4; o <= 4; o++) {
+                        if (o == 0) continue;
+                        int qx = x + o * DIRS[d][0], qy = y + o * DIRS[d][1];
+                        if (qx < 0 || qx >= size || qy < 0 || qy >= size) {
+                            emptyKeys[4 * p + d] |= WALL << shift(o);
+                        } else {
+                            counts[p]++;
+                        }
+                    }
+                }
+            }
+        }
+        aroundStart = new int[n + 1];
+        for (int p = 0; p < n; p++) {
+            aroundStart[p + 1] = aroundStart[p] + counts[p];
+        }
+        aroundPoint = new int[aroundStart[n]];
+        aroundKey = new int[aroundStart[n]];
+        aroundShift = new int[aroundStart[n]];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                int p = x * size + y;
+                int i = aroundStart[p];
+                for (int d = 0; d < 4; d++) {
+                    for (int o = -4; o <= 4; o++) {
+                        if (o == 0) continue;
+                        int qx = x + o * DIRS[d][0], qy = y + o * DIRS[d][1];
+                        if (qx < 0 || qx >= size || qy < 0 || qy >= size) continue;
+                        int q = qx * size + qy;
+                        //从 q 看，p 位于偏移 -o 处
+                        aroundPoint[i] = q;
+                        aroundKey[i] = 4 * q + d;
+                        aroundShift[i] = shift(-o);
+                        i++;
+                    }
+                }
+            }
+        }
+        color = new byte[n];
+        keys = new int[4 * n];
+        score = new int[3][n];
+        clear();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    //清空为空棋盘
+    public void clear() {
+        Arrays.fill(color, (byte) 0);
+        System.arraycopy(emptyKeys, 0, keys, 0, keys.length);
+        total[1] = 0;
+        total[2] = 0;
+        fivePoints[1] = 0;
+        fivePoints[2] = 0;
+        for (int p = 0; p < n; p++) {
+            score[1][p] = 0;
+            score[2][p] = 0;
+            rescore(p);
+        }
+    }
+
+    //按棋盘内容重建
+    public void load(Board board) {
+        clear();
+        for (int p = board.nextPoint(Piece.BLACK, 0); p >= 0; p = board.nextPoint(Piece.BLACK, p + 1)) {
+            place(p, 1);
+        }
+        for (int p = board.nextPoint(Piece.WHITE, 0); p >= 0; p = board.nextPoint(Piece.WHITE, p + 1)) {
+            place(p, 2);
+        }
+    }
+
+    //在空点 p 放下颜色 c（1 黑，2 白）的棋子
+    public void place(int p, int c) {
+        setScore(p, 1, 0);
+        setScore(p, 2, 0);
+        color[p] = (byte) c;
+        update(p, c);
+    }
+
+    //拿走点 p 上的棋子
+    public void remove(int p) {
+        color[p] = 0;
+        update(p, 0);
+        rescore(p);
+    }
+
+    //空点 p 上颜色 c 在方向 dir（0 行，1 列，2 主对角线，3 副对角线）落子形成的棋型
+    public int pattern(int p, int dir, int c) {
+        return PATTERN[c][keys[4 * p + dir]];
+    }
+
+    //颜色 c 在空点 p 落子的分值（综合 4 个方向，含双四、四三、双三），非空点为 0
+    public int pointScore(int p, int c) {
+        return score[c][p];
+    }
+
+    //颜色 c 能直接成五的空点个数
+    public int fivePointCount(int c) {
+        return fivePoints[c];
+    }
+
+    //side 视角的局面分：双方所有空点的分值之差
+    public long evaluate(int side) {
+        return total[side] - total[3 - side];
+    }
+
+    //为行棋方 side 生成按分值降序排列的候选着法（进攻分 + 防守分），最多 max 个，返回个数
+    //己方能成五时只返回成五点；对方能成五时只返回需要挡住的点
+    public int candidates(int side, int[] out, int max) {
+        int opp = 3 - side;
+        if (fivePoints[side] > 0) {
+            return findFivePoints(side, out, 1);
+        }
+        if (fivePoints[opp] > 0) {
+            return findFivePoints(opp, out, max);
+        }
+        int count = 0;
+        if (ranks.length < max) ranks = new int[max];
+        for (int p = 0; p < n; p++) {
+            int own = score[side][p];
+            int other = score[opp][p];
+            if (own == 0 && other == 0) continue;
+            int r = own + own / 4 + other;//同分时进攻优先
+            int i = Math.min(count, max - 1);
+            if (count == max && r <= ranks[i]) continue;
+            while (i > 0 && ranks[i - 1] < r) {
+                out[i] = out[i - 1];
+                ranks[i] = ranks[i - 1];
+                i--;
+            }
+            out[i] = p;
+            ranks[i] = r;
+            if (count < max) count++;
+        }
+        return count;
+    }
+
+    //颜色 c 能直接成五的空点，最多 max 个，返回个数
+    public int findFivePoints(int c, int[] out, int max) {
+        int count = 0;
+        for (int p = 0; p < n && count < max; p++) {
+            if (color[p] == 0 && hasFive(p, c)) {
+                out[count++] = p;
+            }
+        }
+        return count;
+    }
+
+    //空点 p 上颜色 c 落子后 4 个方向中最强的棋型
+    public int bestPattern(int p, int c) {
+        int base = 4 * p;
+        byte[] table = PATTERN[c];
+        return Math.max(Math.max(table[keys[base]], table[keys[base + 1]]),
+                Math.max(table[keys[base + 2]], table[keys[base + 3]]));
+    }
+
+    private boolean hasFive(int p, int c) {
+        int base = 4 * p;
+        return PATTERN[c][keys[base]] == FIVE || PATTERN[c][keys[base + 1]] == FIVE
+                || PATTERN[c][keys[base + 2]] == FIVE || PATTERN[c][keys[base + 3]] == FIVE;
+    }
+
+    //把 p 的新颜色 v 写进周围各点的编码，并重算其中的空点
+    private void update(int p, int v) {
+        for (int i = aroundStart[p], end = aroundStart[p + 1]; i < end; i++) {
+            int k = aroundKey[i];
+            int s = aroundShift[i];
+            keys[k] = (keys[k] & ~(3 << s)) | (v << s);
+            int q = aroundPoint[i];
+            if (color[q] == 0) {
+                rescore(q);
+            }
+        }
+    }
+
+    //重算空点 p 对双方的分值
+    private void rescore(int p) {
+        int base = 4 * p;
+        for (int c = 1; c <= 2; c++) {
+            byte[] table = PATTERN[c];
+            setScore(p, c, combine(table[keys[base]], table[keys[base + 1]],
+                    table[keys[base + 2]], table[keys[base + 3]]));
+        }
+    }
+
+    private void setScore(int p, int c, int s) {
+        int old = score[c][p];
+        if (old == s) return;
+        if (old >= PATTERN_SCORE[FIVE]) fivePoints[c]--;
+        if (s >= PATTERN_SCORE[FIVE]) fivePoints[c]++;
+        total[c] += s - old;
+        score[c][p] = s;
+    }
+
+    //4 个方向的棋型合成一个点的分值
+    private static int combine(int a, int b, int c, int d) {
+        if (a == FIVE || b == FIVE || c == FIVE || d == FIVE) return PATTERN_SCORE[FIVE];
+        int fours = fourCount(a) + fourCount(b) + fourCount(c) + fourCount(d);
+        int threes = (a == OPEN_THREE ? 1 : 0) + (b == OPEN_THREE ? 1 : 0)
+                + (c == OPEN_THREE ? 1 : 0) + (d == OPEN_THREE ? 1 : 0);
+        int sum = PATTERN_SCORE[a] + PATTERN_SCORE[b] + PATTERN_SCORE[c] + PATTERN_SCORE[d];
+        if (fours >= 2) return Math.max(sum, DOUBLE_FOUR);
+        if (fours == 1 && threes > 0) return Math.max(sum, FOUR_THREE);
+        if (threes >= 2) return Math.max(sum, DOUBLE_THREE);
+        return sum;
+    }
+
+    //活四有两个成五点，按两个冲四计
+    private static int fourCount(int t) {
+        return t == OPEN_FOUR ? 2 : t == FOUR ? 1 : 0;
+    }
+
+    //偏移 o（-4..-1, 1..4）在编码中的位移
+    private static int shift(int o) {
+        return 2 * (o < 0 ? o + 4 : o + 3);
+    }
+
+    //对中心已落子的 9 格线型分类：cells 中 0 空，1 己方，2 阻挡（对方或棋盘外）
+    private static int classify(int[] cells, byte[] memo) {
+        int code = 0;
+        for (int v : cells) {
+            code = code * 3 + v;
+        }
+        if (memo[code] != 0) return memo[code] - 1;
+        int result;
+        if (runThroughCenter(cells) >= 5) {
+            result = FIVE;
+        } else {
+            int fives = 0, best = NONE;
+            for (int e = 0; e < 9; e++) {
+                if (cells[e] != 0) continue;
+                cells[e] = 1;
+                if (runThroughCenter(cells) >= 5) {
+                    fives++;
+                } else {
+                    best = Math.max(best, classify(cells, memo));
+                }
+                cells[e] = 0;
+            }
+            if (fives >= 2) result = OPEN_FOUR;
+            else if (fives == 1) result = FOUR;
+            else if (best == OPEN_FOUR) result = OPEN_THREE;
+            else if (best == FOUR) result = THREE;
+            else if (best == OPEN_THREE) result = OPEN_TWO;
+            else if (best == THREE) result = TWO;
+            else result = NONE;
+        }
+        memo[code] = (byte) (result + 1);
+        return result;
+    }
+
+    //经过中心的连续己方棋子数
+    private static int runThroughCenter(int[] cells) {
+        int run = 1;
+        for (int i = 3; i >= 0 && cells[i] == 1; i--) run++;
+        for (int i = 5; i < 9 && cells[i] == 1; i++) run++;
+        return run;
+    }
+}
@@ -1,81 +1,167 @@
 package boardgame;
+
+import java.util.Arrays;
+
 //具体策略-五子棋规则策略
+//为每种颜色维护每条直线（行、列、两条对角线）的位掩码和总子数，
+//落子后只需检查经过该点的 4 条线的掩码即可判断胜负，判断平局只需比较子数，无需扫描棋盘。
 public class GomokuRule implements RuleStrategy {
     //五子棋一旦5子相连，则获胜
     private final int winCount = 5;
 
+    //当前维护的棋盘及其最近一次同步时的哈希
+    private Board tracked;
+    private long syncedHash;
+    //棋盘上的棋子总数
+    private int stoneCount;
+    //lines[颜色][方向][线号]：该颜色在这条线上的棋子位掩码，位号为该点的列号 y
+    //方向 0 为行（线号 x），1 为列（线号 y，位号用 x），2 为主对角线（线号 x - y + size - 1），3 为副对角线（线号 x + y）
+    private int[][][] lines;
+
     //落子操作
     @Override
     public MoveResult placePiece(Board board, int x, int y, Piece currentPlayer) {
         //首先检查该位置是否有对应的棋子
         if (!board.isEmpty(x, y)) {
-            return new MoveResult(false, "该位置已有棋子，落子无效。", GameStatus.ONGOING);
+            return MoveResult.of(MoveCode.OCCUPIED, GameStatus.ONGOING);
         }
+        sync(board);
         //如果该位置空，可以落子，用set进行落子
         board.set(x, y, currentPlayer);
+        addStone(board.getSize(), x, y, currentPlayer);
+        syncedHash = board.getHash();
         //当前玩家进行落子，只可能当前玩家获胜
         //判断当前玩家是否取胜
-        if (checkWin(board, x, y, currentPlayer)) {
+        if (checkWin(board.getSize(), x, y, currentPlayer)) {
             //如果当前玩家是黑色，则状态为黑棋胜，否则为白旗胜
             GameStatus status = currentPlayer == Piece.BLACK ? GameStatus.BLACK_WIN : GameStatus.WHITE_WIN;
-            //返回落子后的消息
-            return new MoveResult(true, "玩家 " + currentPlayer + " 获胜！（五子连线）", status);
+            //返回落子后的结果，提示文字由 GameEngine 按需生成
+            return MoveResult.of(MoveCode.FIVE_IN_ROW, status);
         }
         //如果当前玩家还没有取胜，检查是否还可以落子
-        if (isBoardFull(board)) {
+        if (stoneCount == board.getPointCount()) {
             //如果棋盘已满，则返回平局
-            return new MoveResult(true, "棋盘已满，平局。", GameStatus.DRAW);
+            return MoveResult.of(MoveCode.BOARD_FULL, GameStatus.DRAW);
         }
         //如果既没有获胜也没有落满，那么游戏继续进行。
-        return new MoveResult(true, "落子成功。", GameStatus.ONGOING);
+        return MoveResult.of(MoveCode.PLACED, GameStatus.ONGOING);
     }
 
 
+    //五子棋只要是棋盘内的空点就可以落子
+    @Override
+    public boolean isLegal(Board board, int x, int y, Piece player) {
+        int size = board.getSize();
+        return x >= 0 && x < size && y >= 0 && y < size && board.isEmpty(x * size + y);
+    }
+
+    @Override
+    public int legalMoves(Board board, Piece player, int[] out) {
+        int count = 0;
+        for (int p = board.nextEmpty(0); p >= 0; p = board.nextEmpty(p + 1)) {
+            out[count++] = p;
+        }
+        return count;
+    }
+
     @Override
     public MoveResult pass(Board board, Piece currentPlayer) {
         // 五子棋没有虚着
-        return new MoveResult(false, "五子棋不支持虚着（pass）。", GameStatus.ONGOING);
+        return MoveResult.of(MoveCode.PASS_NOT_ALLOWED, GameStatus.ONGOING);
     }
 
-    //判断棋盘是否已经落满棋子
-    private boolean isBoardFull(Board board) {
-        //遍历检查每个位置是否都有棋子
+    //悔棋：清空落子点；线掩码与棋盘同步时同时清掉对应的位，否则在下次落子时重新同步
+    @Override
+    public void undo(Board board, GameMemento record) {
+        int p = record.getPoint();
+        boolean inSync = board == tracked && board.getHash() == syncedHash;
+        board.set(p, Piece.EMPTY);
+        if (inSync) {
+            int size = board.getSize();
+            int x = p / size, y = p % size;
+            int[][] l = lines[record.getCurrentPlayer().ordinal() - 1];
+            l[0][x] &= ~(1 << y);
+            l[1][y] &= ~(1 << x);
+            l[2][x - y + size - 1] &= ~(1 << y);
+            l[3][x + y] &= ~(1 << y);
+            stoneCount--;
+            syncedHash = board.getHash();
+        }
+    }
+
+    //五子棋没有虚着和提子
+    @Override
+    public int getConsecutivePasses() {
+        return 0;
+    }
+
+    @Override
+    public int getLastCaptureCount() {
+        return 0;
+    }
+
+    @Override
+    public int getLastCapture(int i) {
+        throw new IndexOutOfBoundsException("Gomoku has no captures.");
+    }
+
+    //棋盘被整体替换或被外部改动过时，按棋盘内容重建线掩码和子数
+    private void sync(Board board) {
+        if (board == tracked && board.getHash() == syncedHash) {
+            return;
+        }
         int size = board.getSize();
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (board.get(i, j) == Piece.EMPTY) return false;
+        if (lines == null || tracked == null || tracked.getSize() != size) {
+            lines = new int[2][4][];
+            for (int c = 0; c < 2; c++) {
+                lines[c][0] = new int[size];
+                lines[c][1] = new int[size];
+                lines[c][2] = new int[2 * size - 1];
+                lines[c][3] = new int[2 * size - 1];
+            }
+        } else {
+            for (int[][] byColor : lines) {
+                for (int[] byDir : byColor) {
+                    Arrays.fill(byDir, 0);
+                }
             }
         }
-        return true;
+        tracked = board;
+        stoneCount = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                Piece p = board.get(x * size + y);
+                if (p != Piece.EMPTY) {
+                    addStone(size, x, y, p);
+                }
+            }
+        }
+        syncedHash = board.getHash();
+    }
+
+    //把 (x,y) 处的 player 棋子记入 4 条线的掩码
+    private void addStone(int size, int x, int y, Piece player) {
+        int[][] l = lines[player.ordinal() - 1];
+        l[0][x] |= 1 << y;
+        l[1][y] |= 1 << x;
+        l[2][x - y + size - 1] |= 1 << y;
+        l[3][x + y] |= 1 << y;
+        stoneCount++;
     }
 
     //检查当前棋局，玩家player是否获得了胜利
-    private boolean checkWin(Board board, int x, int y, Piece player) {
-        // 四个方向：水平、竖直、两条对角线
-        int[][] dirs = {
-                {1, 0}, {0, 1}, {1, 1}, {1, -1}
-        };
-        //四个直线分别测试
-        for (int[] d : dirs) {
-            //沿着该直线的两个方向计算棋子总数，如果总数大于等于5，则胜利
-            if (countContinuous(board, x, y, d[0], d[1], player) +
-                    countContinuous(board, x, y, -d[0], -d[1], player) - 1 >= winCount) {
-                return true;
-            }
-        }
-        return false;
+    //只看经过 (x,y) 的 4 条线：掩码与自身右移 1..4 位逐次相与，非零即存在 5 个连续的位
+    private boolean checkWin(int size, int x, int y, Piece player) {
+        int[][] l = lines[player.ordinal() - 1];
+        return hasRun(l[0][x]) || hasRun(l[1][y])
+                || hasRun(l[2][x - y + size - 1]) || hasRun(l[3][x + y]);
     }
 
-    //沿着dx，dy方向计算一共有多少个相同状态棋子相连
-    private int countContinuous(Board board, int x, int y, int dx, int dy, Piece player) {
-        int size = board.getSize();
-        int count = 0;
-        int i = x, j = y;
-        while (i >= 0 && i < size && j >= 0 && j < size && board.get(i, j) == player) {
-            count++;
-            i += dx;
-            j += dy;
+    //掩码中是否有至少 winCount 个连续的 1
+    private boolean hasRun(int mask) {
+        for (int i = 1; i < winCount && mask != 0; i++) {
+            mask &= mask >>> 1;
         }
-        return count;
+        return mask != 0;
     }
 }
@@ -0,0 +1,321 @@
+package boardgame;
+
+import java.util.Arrays;
+
+//五子棋必胜求解器：在只走威胁着法的搜索空间里用 df-pn（深度优先证明数搜索）证明攻方有无强制胜
+//VCF：攻方每一步都是冲四（对方只能挡）；VCT：攻方还可以走活三，守方的应手为挡住攻方成四的点或自己冲四。
+//局面的证明数 / 反证数存放在固定大小的散列表里（直接映射，冲突时覆盖），内存用量与搜索规模无关；
+//节点数与时间都有上限，超出时返回"未证明"，不会拖住调用方。
+public class GomokuSolver {
+    //搜索范围
+    public enum Mode {
+        VCF,//连续冲四
+        VCT//连续冲四或活三
+    }
+
+    private static final int INF = 1 << 28;
+    private static final int MAX_LINE = 128;
+
+    //求解结果
+    public static final class Result {
+        private final boolean proven;
+        private final int[] line;
+        private final long nodes;
+        private final long elapsedMillis;
+
+        private Result(boolean proven, int[] line, long nodes, long elapsedMillis) {
+            this.proven = proven;
+            this.line = line;
+            this.nodes = nodes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        //是否证明了攻方必胜
+        public boolean isProven() {
+            return proven;
+        }
+
+        //证明的主变化：攻方、守方交替的点编号，以攻方成五结束；未证明时为空数组
+        public int[] getLine() {
+            return line.clone();
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    //证明数表：每项一个键与打包在一个 long 里的 (phi, delta)
+    private final long[] tableKeys;
+    private final long[] tableValues;
+    private final int tableMask;
+
+    //搜索状态
+    private int size;
+    private int n;
+    private byte[] cells;
+    private GomokuPatterns patterns;
+    private long hash;//含行棋方的局面哈希
+    private int attacker;
+    private Mode mode;
+    private int[][] moveBuf = new int[MAX_LINE][];
+    private int[][] phiBuf = new int[MAX_LINE][];
+    private int[][] deltaBuf = new int[MAX_LINE][];
+    private int[] scoreBuf;
+    private int[] fiveBuf = new int[2];
+    private long nodes;
+    private long maxNodes;
+    private long deadline;
+    private boolean aborted;
+    //最近一次 mid 返回时该节点的值
+    private int lastPhi;
+    private int lastDelta;
+
+    //按内存大小（MB）分配证明数表，表项数取 2 的幂
+    public GomokuSolver(int tableMegabytes) {
+        long entries = Long.highestOneBit(Math.max(1L, (long) tableMegabytes * 1024 * 1024 / 16));
+        int count = (int) Math.min(entries, 1 << 27);
+        tableKeys = new long[count];
+        tableValues = new long[count];
+        tableMask = count - 1;
+    }
+
+    //求解 attacker 先走时能否强制取胜；maxNodes、timeLimitMillis 为搜索上限，不修改 board
+    public Result solve(Board board, Piece attacker, Mode mode, long maxNodes, long timeLimitMillis) {
+        long start = System.nanoTime();
+        load(board);
+        this.attacker = attacker == Piece.BLACK ? 1 : 2;
+        this.mode = mode;
+        this.maxNodes = maxNodes;
+        this.deadline = start + timeLimitMillis * 1_000_000L;
+        this.nodes = 0;
+        this.aborted = false;
+        hash = board.getHash(attacker);
+        Arrays.fill(tableKeys, 0L);
+
+        mid(INF, INF, this.attacker, 0);
+        boolean proven = !aborted && lastPhi == 0;
+        int[] line = proven ? principalLine() : new int[0];
+        return new Result(proven, line, nodes, (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    //df-pn 的 MID 过程。phi / delta 以本节点行棋方为准：phi = 0 表示行棋方达成目标
+    //（攻方：取胜；守方：化解攻势），delta = 0 表示行棋方失败。结果留在 lastPhi / lastDelta 并写入表中
+    private void mid(int thPhi, int thDelta, int side, int depth) {
+        if ((++nodes & 1023) == 0 && System.nanoTime() > deadline) {
+            aborted = true;
+        }
+        if (nodes > maxNodes) {
+            aborted = true;
+        }
+        if (depth >= MAX_LINE - 1) {
+            setResult(INF, 0);//过深的攻势按失败处理
+            return;
+        }
+        if (moveBuf[depth] == null) {
+            moveBuf[depth] = new int[n];
+            phiBuf[depth] = new int[n];
+            deltaBuf[depth] = new int[n];
+        }
+        int[] moves = moveBuf[depth];
+        int count = generate(side, moves);
+        if (count < 0) {
+            //-1：行棋方直接达成目标；-2：行棋方失败
+            if (count == -1) setResult(0, INF);
+            else setResult(INF, 0);
+            store(hash, lastPhi, lastDelta);
+            return;
+        }
+        int[] childPhi = phiBuf[depth];
+        int[] childDelta = deltaBuf[depth];
+        long toggle = Zobrist.sideToMove(Piece.WHITE);
+        Piece piece = side == 1 ? Piece.BLACK : Piece.WHITE;
+        for (int i = 0; i < count; i++) {
+            long v = lookup(hash ^ Zobrist.key(piece, moves[i]) ^ toggle);
+            childPhi[i] = v == 0 ? 1 : (int) (v >>> 32);
+            childDelta[i] = v == 0 ? 1 : (int) v;
+        }
+        while (true) {
+            //phi = 子节点 delta 的最小值，delta = 子节点 phi 之和
+            int phi = INF, delta = 0, best = 0, delta2 = INF;
+            for (int i = 0; i < count; i++) {
+                int d = childDelta[i];
+                if (d < phi) {
+                    delta2 = phi;
+                    phi = d;
+                    best = i;
+                } else if (d < delta2) {
+                    delta2 = d;
+                }
+                delta = Math.min(INF, delta + childPhi[i]);
+            }
+            if (phi >= thPhi || delta >= thDelta || aborted) {
+                setResult(phi, delta);
+                if (!aborted) store(hash, phi, delta);
+                return;
+            }
+            int cThPhi = Math.min(INF, thDelta - delta + childPhi[best]);
+            //1 + 1/4 的放宽，减少在两个子节点间来回切换
+            int cThDelta = Math.min(thPhi, delta2 >= INF ? INF : delta2 + delta2 / 4 + 1);
+            int p = moves[best];
+            make(p, side);
+            mid(cThPhi, cThDelta, 3 - side, depth + 1);
+            unmake(p, side);
+            childPhi[best] = lastPhi;
+            childDelta[best] = lastDelta;
+        }
+    }
+
+    //生成行棋方的着法，按进攻分降序写入 moves 并返回个数；行棋方已达成目标返回 -1，已失败返回 -2
+    private int generate(int side, int[] moves) {
+        int other = 3 - side;
+        if (side == attacker) {
+            if (patterns.fivePointCount(side) > 0) return -1;
+            int need = mode == Mode.VCF ? GomokuPatterns.FOUR : GomokuPatterns.OPEN_THREE;
+            int otherFives = patterns.fivePointCount(other);
+            if (otherFives >= 2) return -2;
+            if (otherFives == 1) {
+                //必须先挡住守方的冲四，挡的这一步本身也得是威胁
+                patterns.findFivePoints(other, fiveBuf, 1);
+                int p = fiveBuf[0];
+                if (patterns.bestPattern(p, side) < need) return -2;
+                moves[0] = p;
+                return 1;
+            }
+            int count = 0;
+            for (int p = 0; p < n; p++) {
+                if (cells[p] == 0 && patterns.bestPattern(p, side) >= need) {
+                    count = insert(moves, count, p, patterns.pointScore(p, side));
+                }
+            }
+            return count == 0 ? -2 : count;
+        }
+        //守方
+        if (patterns.fivePointCount(side) > 0) return -1;//守方可以直接成五
+        int attackerFives = patterns.fivePointCount(other);
+        if (attackerFives >= 2) return -2;
+        if (attackerFives == 1) {
+            patterns.findFivePoints(other, moves, 1);
+            return 1;
+        }
+        //攻方走的是活三：挡住攻方能成四的点，或者自己冲四
+        int count = 0;
+        for (int p = 0; p < n; p++) {
+            if (cells[p] != 0) continue;
+            if (patterns.bestPattern(p, other) >= GomokuPatterns.FOUR
+                    || patterns.bestPattern(p, side) >= GomokuPatterns.FOUR) {
+                count = insert(moves, count, p, patterns.pointScore(p, other) + patterns.pointScore(p, side));
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    //按分值降序插入
+    private int insert(int[] moves, int count, int p, int score) {
+        int i = count;
+        while (i > 0 && scoreBuf[i - 1] < score) {
+            moves[i] = moves[i - 1];
+            scoreBuf[i] = scoreBuf[i - 1];
+            i--;
+        }
+        moves[i] = p;
+        scoreBuf[i] = score;
+        return count + 1;
+    }
+
+    //沿证明数表取出证明的主变化：攻方走让对方失败的着法，守方任取一个应手（唯一应手直接走），直到攻方成五
+    private int[] principalLine() {
+        int[] line = new int[MAX_LINE];
+        int length = 0;
+        int side = attacker;
+        int[] moves = new int[n];
+        long toggle = Zobrist.sideToMove(Piece.WHITE);
+        while (length < MAX_LINE - 1) {
+            if (side == attacker && patterns.fivePointCount(side) > 0) {
+                patterns.findFivePoints(side, moves, 1);
+                line[length++] = moves[0];
+                break;
+            }
+            int count = generate(side, moves);
+            if (count == -2 && side != attacker) {
+                //攻方已有两个成五点：守方挡住其中一个，下一步攻方成五
+                patterns.findFivePoints(attacker, moves, 1);
+                count = 1;
+            } else if (count < 0) {
+                break;
+            }
+            Piece piece = side == 1 ? Piece.BLACK : Piece.WHITE;
+            int chosen = -1;
+            if (count == 1 && side != attacker) {
+                chosen = moves[0];
+            }
+            for (int i = 0; i < count && chosen < 0; i++) {
+                long v = lookup(hash ^ Zobrist.key(piece, moves[i]) ^ toggle);
+                boolean childFails = v != 0 && (int) v == 0;
+                boolean childSucceeds = v != 0 && (int) (v >>> 32) == 0;
+                if (side == attacker ? childFails : childSucceeds) chosen = moves[i];
+            }
+            if (chosen < 0) break;//表项已被覆盖，主变化到此为止
+            line[length++] = chosen;
+            make(chosen, side);
+            side = 3 - side;
+        }
+        //恢复局面
+        for (int i = length - 1; i >= 0; i--) {
+            if (cells[line[i]] != 0) {
+                unmake(line[i], cells[line[i]]);
+            }
+        }
+        return Arrays.copyOf(line, length);
+    }
+
+    private void make(int p, int side) {
+        cells[p] = (byte) side;
+        patterns.place(p, side);
+        hash ^= Zobrist.key(side == 1 ? Piece.BLACK : Piece.WHITE, p) ^ Zobrist.sideToMove(Piece.WHITE);
+    }
+
+    private void unmake(int p, int side) {
+        cells[p] = 0;
+        patterns.remove(p);
+        hash ^= Zobrist.key(side == 1 ? Piece.BLACK : Piece.WHITE, p) ^ Zobrist.sideToMove(Piece.WHITE);
+    }
+
+    private void setResult(int phi, int delta) {
+        lastPhi = phi;
+        lastDelta = delta;
+    }
+
+    //查表：命中返回 (phi << 32 | delta)，未命中返回 0
+    private long lookup(long key) {
+        int i = (int) key & tableMask;
+        return tableKeys[i] == key ? tableValues[i] : 0L;
+    }
+
+    private void store(long key, int phi, int delta) {
+        int i = (int) key & tableMask;
+        tableKeys[i] = key;
+        tableValues[i] = ((long) phi << 32) | delta;
+    }
+
+    private void load(Board board) {
+        if (board.getSize() != size) {
+            size = board.getSize();
+            n = size * size;
+            cells = new byte[n];
+            patterns = new GomokuPatterns(size);
+            scoreBuf = new int[n];
+            moveBuf = new int[MAX_LINE][];
+            phiBuf = new int[MAX_LINE][];
+            deltaBuf = new int[MAX_LINE][];
+        }
+        patterns.load(board);
+        for (int p = 0; p < n; p++) {
+            cells[p] = (byte) board.get(p).ordinal();
+        }
+    }
+}
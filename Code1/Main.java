@@ -4,6 +4,10 @@ public class Main {
     public static void main(String[] args) {
         // 获取 GameEngine 的唯一实例
         GameEngine engine = new GameEngine(); // 使用单例模式获取实例
+        //参数：走子日志文件 [落盘窗口毫秒]，启动时先从日志恢复上次没下完的对局
+        if (args.length > 0) {
+            engine.openJournal(args[0], args.length > 1 ? Long.parseLong(args[1]) : ConsoleUI.JOURNAL_MILLIS);
+        }
         ConsoleUI ui = new ConsoleUI(engine);
         ui.run();
     }
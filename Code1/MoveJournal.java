@@ -0,0 +1,277 @@
+package boardgame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+//走子日志（预写日志）：每一步落子、虚着、悔棋、认负都在文件末尾追加几个字节，进程意外退出后可以恢复整局（含历史）
+//文件头为魔数 "BGJL" 和版本号，之后每条记录为 [类型 1 字节][内容][类型和内容的 CRC32 4 字节]：
+//  START：一个 GameRecord 编码（int 长度 + 字节）和已用的悔棋次数（int），开局、读档时重写整个文件，作为之后各条记录的起点；
+//  MOVE：点编号（short）；PASS：无内容；UNDO：悔棋后已用的悔棋次数（short）；RESIGN：认负后的 GameStatus（byte）。
+//写入立即交给操作系统，force 按组提交：durability 窗口内的多条记录由后台线程合并成一次 force，
+//窗口为 0 时每条记录都同步 force。恢复时读到第一条不完整或校验不对的记录为止（写到一半的尾部），并把它截掉。
+//重写起点时先写临时文件并 force，再改名替换日志，任何时刻崩溃，磁盘上都是旧日志或新日志之一。
+public class MoveJournal implements AutoCloseable {
+    static final int MAGIC = 0x42474A4C;
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final byte START = 1, MOVE = 2, PASS = 3, UNDO = 4, RESIGN = 5;
+    private static final int MAX_FILE_BYTES = 16 << 20;
+
+    //从日志恢复出的对局：起点记录加上之后的着法，已按悔棋记录抵消
+    public static final class Recovered {
+        private final GameRecord record;
+        private final int undoCount;
+
+        private Recovered(GameRecord record, int undoCount) {
+            this.record = record;
+            this.undoCount = undoCount;
+        }
+
+        //起点之后仍然有效的着法都合并进来的对局记录；终局状态只在认负时有意义，其余由重放决定
+        public GameRecord getRecord() {
+            return record;
+        }
+
+        //已用的悔棋次数（含起点之前的）
+        public int getUndoCount() {
+            return undoCount;
+        }
+    }
+
+    private final Path path;
+    private volatile FileChannel channel;//重写起点后换成新文件的通道
+    private final long windowMillis;
+    private final ByteBuffer record = ByteBuffer.allocate(16);
+    private final CRC32 crc = new CRC32();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private volatile IOException flushFailure;
+
+    //windowMillis：记录写入后最多多久一定落盘，0 表示每条都立即 force
+    private MoveJournal(Path path, FileChannel channel, long windowMillis) {
+        this.path = path;
+        this.channel = channel;
+        this.windowMillis = windowMillis;
+        if (windowMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "move-journal");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flushIfDirty, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    //打开（没有时创建）日志文件
+    public static MoveJournal open(String filename, long windowMillis) throws IOException {
+        Path path = Path.of(filename);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new MoveJournal(path, channel, Math.max(0, windowMillis));
+    }
+
+    //读出日志中的对局并截掉不完整的尾部，之后的记录接着写在后面；日志为空或没有起点记录时返回 null
+    public Recovered recover() throws IOException {
+        long length = channel.size();
+        if (length > MAX_FILE_BYTES) {
+            throw new IOException("Move journal is too large.");
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) length);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, buf.position()) < 0) break;
+        }
+        buf.flip();
+        GameRecord start = null;
+        int[] moves = new int[64];
+        int count = 0;
+        GameStatus status = GameStatus.ONGOING;
+        int undoCount = 0;
+        long valid = 0;
+        if (buf.remaining() >= HEADER_BYTES && buf.getInt(0) == MAGIC && buf.getInt(4) == VERSION) {
+            buf.position(HEADER_BYTES);
+            valid = HEADER_BYTES;
+            while (buf.hasRemaining()) {
+                int begin = buf.position();
+                int type = buf.get(begin);
+                int payload;
+                if (type == START) {
+                    int recordBytes = buf.remaining() >= 5 ? buf.getInt(begin + 1) : -1;
+                    payload = recordBytes < 0 || 8L + recordBytes > buf.limit() ? -1 : 8 + recordBytes;
+                } else {
+                    payload = type == MOVE ? 2 : type == RESIGN ? 1 : type == UNDO ? 2 : type == PASS ? 0 : -1;
+                }
+                if (payload < 0 || (long) begin + 1 + payload + 4 > buf.limit()) break;
+                crc.reset();
+                crc.update(buf.array(), begin, 1 + payload);
+                if (buf.getInt(begin + 1 + payload) != (int) crc.getValue()) break;
+                buf.position(begin + 1);
+                if (type == START) {
+                    ByteBuffer bytes = buf.slice();
+                    bytes.position(4).limit(payload - 4);
+                    start = GameRecord.fromBytes(bytes.slice(), "journal");
+                    count = 0;
+                    status = start.getStatus();
+                    undoCount = buf.getInt(begin + 1 + payload - 4);
+                } else if (start == null) {
+                    break;//没有起点的记录无法解释
+                } else if (type == MOVE || type == PASS) {
+                    if (count == moves.length) moves = Arrays.copyOf(moves, count * 2);
+                    moves[count++] = type == MOVE ? buf.getShort(begin + 1) : GameMemento.PASS;
+                    status = GameStatus.ONGOING;
+                } else if (type == UNDO) {
+                    //悔掉起点之前的着法时，把起点记录的着法也一并回退
+                    if (count > 0) {
+                        count--;
+                    } else if (start.getMoves().length > 0) {
+                        int[] before = start.getMoves();
+                        start = start.withMoves(Arrays.copyOf(before, before.length - 1), GameStatus.ONGOING);
+                    }
+                    status = GameStatus.ONGOING;
+                    undoCount = buf.getShort(begin + 1);
+                } else {
+                    status = GameStatus.values()[buf.get(begin + 1)];
+                }
+                buf.position(begin + 1 + payload + 4);
+                valid = buf.position();
+            }
+        }
+        if (valid < length || valid == 0) {
+            if (valid == 0) {
+                writeHeader();
+            } else {
+                channel.truncate(valid);
+            }
+        }
+        channel.position(channel.size());
+        if (start == null) return null;
+        int[] base = start.getMoves();
+        int[] all = Arrays.copyOf(base, base.length + count);
+        System.arraycopy(moves, 0, all, base.length, count);
+        return new Recovered(start.withMoves(all, status), undoCount);
+    }
+
+    //用新的起点记录重写日志：先写临时文件并 force，再原子改名替换，换成新文件的通道
+    //undoCount 为已用的悔棋次数，恢复后接着算
+    public synchronized void checkpoint(GameRecord game, int undoCount) throws IOException {
+        byte[] bytes = game.toBytes();
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + 1 + 4 + bytes.length + 4 + 4);
+        buf.putInt(MAGIC).putInt(VERSION).put(START).putInt(bytes.length).put(bytes).putInt(undoCount);
+        crc.reset();
+        crc.update(buf.array(), HEADER_BYTES, 1 + 4 + bytes.length + 4);
+        buf.putInt((int) crc.getValue()).flip();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) {
+                out.write(buf);
+            }
+            out.force(false);
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel old = channel;
+        FileChannel renamed = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        renamed.position(renamed.size());
+        channel = renamed;
+        dirty.set(false);
+        old.close();
+    }
+
+    //落子或虚着（point 为 GameMemento.PASS）
+    public void move(int point) throws IOException {
+        record.clear();
+        if (point == GameMemento.PASS) {
+            record.put(PASS);
+        } else {
+            record.put(MOVE).putShort((short) point);
+        }
+        append();
+    }
+
+    //悔棋，undoCount 为悔棋之后已用的悔棋次数
+    public void undo(int undoCount) throws IOException {
+        record.clear();
+        record.put(UNDO).putShort((short) Math.min(undoCount, Short.MAX_VALUE));
+        append();
+    }
+
+    public void resign(GameStatus result) throws IOException {
+        record.clear();
+        record.put(RESIGN).put((byte) result.ordinal());
+        append();
+    }
+
+    //把还没落盘的记录立即 force
+    public synchronized void sync() throws IOException {
+        if (dirty.getAndSet(false)) {
+            channel.force(false);
+        }
+        IOException failure = flushFailure;
+        if (failure != null) {
+            flushFailure = null;
+            throw failure;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void append() throws IOException {
+        crc.reset();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue()).flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        if (windowMillis == 0) {
+            channel.force(false);
+        } else {
+            dirty.set(true);
+        }
+        //后台落盘出错时在下一次写入时报告
+        IOException failure = flushFailure;
+        if (failure != null) {
+            flushFailure = null;
+            throw failure;
+        }
+    }
+
+    //后台线程：窗口内有新记录时合并成一次 force；与重写起点互斥，不会 force 已经关掉的旧通道
+    private synchronized void flushIfDirty() {
+        if (!dirty.getAndSet(false)) return;
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            flushFailure = e;
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        channel.truncate(0);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES);
+        buf.putInt(MAGIC).putInt(VERSION).flip();
+        channel.write(buf, 0);
+    }
+
+}
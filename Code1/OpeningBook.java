@@ -0,0 +1,117 @@
+package boardgame;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//开局库
+//文件为按规范哈希排序的定长表项：(规范局面哈希 long, 规范方向下的着法 int, 权重 int)，由 OpeningBookBuilder 生成。
+//通过 FileChannel 只读映射到内存，查询时在映射区上二分查找，不分配对象；
+//多个进程打开同一本开局库时共享操作系统的页缓存，不会各自读一份到堆里。
+//文件头：魔数 "BGOB"、版本号、棋类（GameType 的 ordinal）、表项数，各 4 字节，大端。
+public class OpeningBook {
+    static final int MAGIC = 0x42474F42;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 16;
+
+    private final MappedByteBuffer map;
+    private final GameType gameType;
+    private final int count;
+
+    private OpeningBook(MappedByteBuffer map, GameType gameType, int count) {
+        this.map = map;
+        this.gameType = gameType;
+        this.count = count;
+    }
+
+    //打开开局库文件；格式不对时抛出 IOException
+    public static OpeningBook open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES || length > Integer.MAX_VALUE) {
+                throw new IOException("Not an opening book: " + filename);
+            }
+            //映射在通道关闭后仍然有效
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int typeIndex = map.getInt(8);
+            int count = map.getInt(12);
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION
+                    || typeIndex < 0 || typeIndex >= GameType.values().length
+                    || count < 0 || HEADER_BYTES + (long) count * ENTRY_BYTES != length) {
+                throw new IOException("Not an opening book: " + filename);
+            }
+            return new OpeningBook(map, GameType.values()[typeIndex], count);
+        }
+    }
+
+    public GameType getGameType() {
+        return gameType;
+    }
+
+    //表项数
+    public int size() {
+        return count;
+    }
+
+    //side 在 board 上权重最高的开局库着法（board 方向下的点编号），库中没有返回 -1
+    public int bestMove(Board board, Piece side) {
+        int k = BoardSymmetry.canonical(board, side);
+        long key = BoardSymmetry.hash(board, side, k);
+        int best = -1, bestWeight = 0;
+        for (int i = lowerBound(key); i < count && hashAt(i) == key; i++) {
+            int w = weightAt(i);
+            if (w > bestWeight) {
+                bestWeight = w;
+                best = moveAt(i);
+            }
+        }
+        return best < 0 ? -1 : BoardSymmetry.apply(BoardSymmetry.inverse(k), best, board.getSize());
+    }
+
+    //按权重随机选一步，u 为 [0, 1) 内的随机数；库中没有返回 -1
+    public int pickMove(Board board, Piece side, double u) {
+        int k = BoardSymmetry.canonical(board, side);
+        long key = BoardSymmetry.hash(board, side, k);
+        int first = lowerBound(key);
+        long total = 0;
+        int end = first;
+        for (; end < count && hashAt(end) == key; end++) {
+            total += weightAt(end);
+        }
+        if (total == 0) return -1;
+        long target = (long) (u * total);
+        for (int i = first; i < end; i++) {
+            target -= weightAt(i);
+            if (target < 0) {
+                return BoardSymmetry.apply(BoardSymmetry.inverse(k), moveAt(i), board.getSize());
+            }
+        }
+        return -1;
+    }
+
+    //第一个哈希不小于 key 的表项下标（按有符号 long 排序，与生成时一致）
+    private int lowerBound(long key) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (hashAt(mid) < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private long hashAt(int i) {
+        return map.getLong(HEADER_BYTES + i * ENTRY_BYTES);
+    }
+
+    private int moveAt(int i) {
+        return map.getInt(HEADER_BYTES + i * ENTRY_BYTES + 8);
+    }
+
+    private int weightAt(int i) {
+        return map.getInt(HEADER_BYTES + i * ENTRY_BYTES + 12);
+    }
+}
@@ -0,0 +1,196 @@
+package boardgame;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+//开局库生成器：读入对局（着法序列），统计每个开局局面下各着法的出现次数，写出 OpeningBook 文件
+//每个局面先变换到规范方向（BoardSymmetry），着法随之变换，旋转、镜像后相同的开局合并为同一项；
+//局面本身对称时，等价的几个着法取编号最小的那个。权重：每出现一次加 1，这一步的行棋方最终获胜再加 2。
+public class OpeningBookBuilder {
+    private final GameType gameType;
+    private final int maxPlies;//每局只收录前 maxPlies 步
+    //规范哈希 -> (规范着法 -> 权重)
+    private final Map<Long, TreeMap<Integer, Integer>> entries = new HashMap<>();
+    private int games = 0;
+
+    public OpeningBookBuilder(GameType gameType, int maxPlies) {
+        this.gameType = gameType;
+        this.maxPlies = maxPlies;
+    }
+
+    //已收录的对局数
+    public int getGameCount() {
+        return games;
+    }
+
+    //收录一局：moves 为从空棋盘开始依次的点编号（虚着为 GameMemento.PASS），result 为终局状态
+    //着法不合法时整局不收录，返回 false
+    public boolean addGame(int size, int[] moves, GameStatus result) {
+        Board board = new Board(size);
+        RuleStrategy rule = gameType == GameType.GOMOKU ? new GomokuRule() : new GoRule();
+        Piece side = Piece.BLACK;
+        int plies = Math.min(moves.length, maxPlies);
+        long[] hashes = new long[plies];
+        int[] canonicalMoves = new int[plies];
+        int recorded = 0;
+        for (int i = 0; i < plies; i++) {
+            int p = moves[i];
+            if (p == GameMemento.PASS || p < 0 || p >= board.getPointCount()) break;
+            //规范方向与规范着法
+            long best = Long.MAX_VALUE;
+            int move = Integer.MAX_VALUE;
+            for (int k = 0; k < BoardSymmetry.COUNT; k++) {
+                long h = BoardSymmetry.hash(board, side, k);
+                int m = BoardSymmetry.apply(k, p, size);
+                if (h < best || (h == best && m < move)) {
+                    best = h;
+                    move = m;
+                }
+            }
+            RuleStrategy.MoveResult r = rule.placePiece(board, p / size, p % size, side);
+            if (!r.isSuccess()) return false;
+            hashes[recorded] = best;
+            canonicalMoves[recorded] = move;
+            recorded++;
+            if (r.getStatus() != GameStatus.ONGOING) break;
+            side = side.opposite();
+        }
+        Piece winner = result == GameStatus.BLACK_WIN ? Piece.BLACK
+                : result == GameStatus.WHITE_WIN ? Piece.WHITE : Piece.EMPTY;
+        side = Piece.BLACK;
+        for (int i = 0; i < recorded; i++) {
+            int w = side == winner ? 3 : 1;
+            entries.computeIfAbsent(hashes[i], h -> new TreeMap<>()).merge(canonicalMoves[i], w, Integer::sum);
+            side = side.opposite();
+        }
+        games++;
+        return true;
+    }
+
+    //收录一个由 GameEngine.saveToFile 保存的对局（二进制或文本格式）；棋类不符、没有着法记录、
+    //或不是从空棋盘开始的对局（例如从读取的局面继续下的对局）时返回 false
+    public boolean addSavedGame(String filename) throws IOException {
+        if (GameRecord.isRecordFile(filename)) {
+            GameRecord record = GameRecord.read(filename);
+            if (record.getGameType() != gameType || record.hasSetup()) return false;
+            return addGame(record.getSize(), record.getMoves(), record.getStatus());
+        }
+        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
+            String typeLine = br.readLine();
+            String sizeLine = br.readLine();
+            br.readLine();
+            String statusLine = br.readLine();
+            if (typeLine == null || sizeLine == null || statusLine == null
+                    || !typeLine.trim().equals(gameType.name())) {
+                return false;
+            }
+            int size = Integer.parseInt(sizeLine.trim());
+            GameStatus status = GameStatus.valueOf(statusLine.trim());
+            String[] rows = new String[size];
+            for (int i = 0; i < size; i++) {
+                rows[i] = br.readLine();
+                if (rows[i] == null || rows[i].length() < size) return false;
+            }
+            String movesLine = br.readLine();
+            if (movesLine == null || !movesLine.startsWith("MOVES")) return false;
+            String[] parts = movesLine.trim().split("\\s+");
+            int[] moves = new int[parts.length - 1];
+            for (int i = 1; i < parts.length; i++) {
+                moves[i - 1] = Integer.parseInt(parts[i]);
+            }
+            if (!replaysTo(size, moves, rows)) return false;
+            return addGame(size, moves, status);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    //收录一个 SGF 文件（可以是多局的棋谱集）里的全部对局，棋类不符、格式或着法有误的对局跳过，返回收录的局数
+    public int addSgfFile(String filename) throws IOException {
+        int added = 0;
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            SgfReader reader = new SgfReader(channel);
+            int failed = -1;
+            while (true) {
+                GameRecord record;
+                try {
+                    record = reader.next();
+                } catch (IOException e) {
+                    //这一局有误时接着读下一局；没读到新的一局就出错说明是文件本身读不下去
+                    if (reader.getGameIndex() == failed) throw e;
+                    failed = reader.getGameIndex();
+                    continue;
+                }
+                if (record == null) break;
+                if (record.getGameType() == gameType && !record.hasSetup()
+                        && addGame(record.getSize(), record.getMoves(), record.getStatus())) {
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    //写出开局库文件，返回表项数
+    public int write(String filename) throws IOException {
+        long[] keys = new long[entries.size()];
+        int i = 0;
+        int count = 0;
+        for (Map.Entry<Long, TreeMap<Integer, Integer>> e : entries.entrySet()) {
+            keys[i++] = e.getKey();
+            count += e.getValue().size();
+        }
+        Arrays.sort(keys);
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+            buf.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(gameType.ordinal()).putInt(count);
+            for (long key : keys) {
+                for (Map.Entry<Integer, Integer> m : entries.get(key).entrySet()) {
+                    if (buf.remaining() < OpeningBook.ENTRY_BYTES) {
+                        drain(channel, buf);
+                    }
+                    buf.putLong(key).putInt(m.getKey()).putInt(m.getValue());
+                }
+            }
+            drain(channel, buf);
+        }
+        return count;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    //按规则重放着法，检查结果是否与存档中的棋盘一致
+    private boolean replaysTo(int size, int[] moves, String[] rows) {
+        Board board = new Board(size);
+        RuleStrategy rule = gameType == GameType.GOMOKU ? new GomokuRule() : new GoRule();
+        Piece side = Piece.BLACK;
+        for (int p : moves) {
+            RuleStrategy.MoveResult r = p == GameMemento.PASS ? rule.pass(board, side)
+                    : p >= 0 && p < board.getPointCount() ? rule.placePiece(board, p / size, p % size, side) : null;
+            if (r == null || !r.isSuccess()) return false;
+            side = side.opposite();
+        }
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (board.get(x, y).getSymbol() != rows[x].charAt(y)) return false;
+            }
+        }
+        return true;
+    }
+}
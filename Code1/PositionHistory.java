@@ -0,0 +1,107 @@
+package boardgame;
+
+import java.util.Arrays;
+
+//对局中出现过的局面哈希记录
+//按出现顺序保存在栈中以便悔棋时逐个弹出，同时放入开放寻址的哈希表（带计数）以 O(1) 判断某局面是否出现过。
+//只存 long，不装箱、不保存棋盘快照。
+public class PositionHistory {
+    private long[] stack = new long[64];
+    private int top = 0;
+
+    //开放寻址哈希表：used 表示槽位曾被占用（计数为 0 的槽位作为墓碑保留）
+    private long[] keys = new long[128];
+    private int[] counts = new int[128];
+    private boolean[] used = new boolean[128];
+    private int usedSlots = 0;
+
+    //记录一个新局面
+    public void push(long hash) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+        }
+        stack[top++] = hash;
+        insert(hash);
+    }
+
+    //撤销最近记录的局面并返回它
+    public long pop() {
+        if (top == 0) {
+            throw new IllegalStateException("Position history is empty.");
+        }
+        long hash = stack[--top];
+        int i = find(hash);
+        counts[i]--;
+        return hash;
+    }
+
+    //该局面是否出现过
+    public boolean contains(long hash) {
+        int i = find(hash);
+        return i >= 0 && counts[i] > 0;
+    }
+
+    public int size() {
+        return top;
+    }
+
+    public void clear() {
+        top = 0;
+        Arrays.fill(used, false);
+        Arrays.fill(counts, 0);
+        usedSlots = 0;
+    }
+
+    private int find(long hash) {
+        int mask = keys.length - 1;
+        for (int i = slot(hash, mask); used[i]; i = (i + 1) & mask) {
+            if (keys[i] == hash) return i;
+        }
+        return -1;
+    }
+
+    private void insert(long hash) {
+        int mask = keys.length - 1;
+        int i = slot(hash, mask);
+        for (; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == hash) {
+                counts[i]++;
+                return;
+            }
+        }
+        used[i] = true;
+        keys[i] = hash;
+        counts[i] = 1;
+        if (++usedSlots * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    //扩容并丢弃墓碑
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        boolean[] oldUsed = used;
+        int capacity = Integer.highestOneBit(Math.max(top, 32)) * 4;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        used = new boolean[capacity];
+        usedSlots = 0;
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (!oldUsed[j] || oldCounts[j] == 0) continue;
+            int i = slot(oldKeys[j], mask);
+            while (used[i]) {
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            keys[i] = oldKeys[j];
+            counts[i] = oldCounts[j];
+            usedSlots++;
+        }
+    }
+
+    private static int slot(long hash, int mask) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
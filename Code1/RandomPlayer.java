@@ -0,0 +1,47 @@
+package boardgame;
+
+import java.util.SplittableRandom;
+
+//随机电脑玩家：在合法着法中等概率选一步，作为自对弈回归测试的基准对手
+//围棋中不填自己的眼（四邻都是己方棋子或棋盘边的点），没有其他着法时虚着，保证对局能够结束。
+public class RandomPlayer implements ComputerPlayer {
+    private final SplittableRandom random;
+    private int[] moves = new int[0];
+
+    public RandomPlayer(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public String getName() {
+        return "随机玩家";
+    }
+
+    @Override
+    public int chooseMove(Board board, RuleStrategy rule, Piece player) {
+        int n = board.getPointCount();
+        if (moves.length < n) {
+            moves = new int[n];
+        }
+        int count = rule.legalMoves(board, player, moves);
+        if (rule instanceof GoRule) {
+            int[] neighbors = board.neighborTable();
+            int m = 0;
+            for (int i = 0; i < count; i++) {
+                if (!isOwnEye(board, neighbors, moves[i], player)) {
+                    moves[m++] = moves[i];
+                }
+            }
+            count = m;
+        }
+        return count == 0 ? GameMemento.PASS : moves[random.nextInt(count)];
+    }
+
+    private static boolean isOwnEye(Board board, int[] neighbors, int p, Piece player) {
+        for (int k = 0; k < 4; k++) {
+            int q = neighbors[4 * p + k];
+            if (q >= 0 && board.get(q) != player) return false;
+        }
+        return true;
+    }
+}
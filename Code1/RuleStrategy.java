@@ -4,7 +4,7 @@ public interface RuleStrategy {
 
     /**
      * 在 board 上为 currentPlayer 在 (x,y) 落子。
-     * 坐标为 0-based。若非法，返回带错误信息的 Result。
+     * 坐标为 0-based。若非法，返回对应失败结果码的 Result。
      */
     MoveResult placePiece(Board board, int x, int y, Piece currentPlayer);
 
@@ -13,24 +13,105 @@ public interface RuleStrategy {
      */
     MoveResult pass(Board board, Piece currentPlayer);
 
+    /**
+     * 只读判断 player 在 (x,y)（0-based）落子是否合法，不修改棋盘、不记录历史。
+     * 围棋会同时考虑空点、自杀与超级劫。
+     */
+    boolean isLegal(Board board, int x, int y, Piece player);
+
+    /**
+     * 把 player 所有合法落点的编号（x * size + y）写入 out（长度至少为 size * size），返回个数。
+     * 不修改棋盘、不记录历史，也不分配内存，可在搜索中反复调用。
+     */
+    int legalMoves(Board board, Piece player, int[] out);
+
+    /**
+     * 悔棋时调用：按 record 记录的反向增量，在 board 上原地撤销最近一次成功的 placePiece / pass，
+     * 同时回退规则内部状态（如围棋的局面历史、连续虚着计数）。
+     */
+    void undo(Board board, GameMemento record);
+
+    /**
+     * 当前的连续虚着次数，五子棋恒为 0。GameEngine 在行棋前读取并记入 GameMemento。
+     */
+    int getConsecutivePasses();
+
+    /**
+     * 最近一次成功落子提掉的棋子数，五子棋恒为 0。
+     */
+    int getLastCaptureCount();
+
+    /**
+     * 最近一次成功落子提掉的第 i 颗棋子的点编号（x * size + y）。
+     */
+    int getLastCapture(int i);
+
+    //结果码，message 为给用户看的文字模板（%s 为行棋方），只在 GameEngine 需要显示时才格式化
+    enum MoveCode {
+        PLACED("落子成功。"),
+        FIVE_IN_ROW("玩家 %s 获胜！（五子连线）"),
+        BOARD_FULL("棋盘已满，平局。"),
+        PASSED("玩家 %s 选择虚着。"),
+        SCORED("双方连续虚着，终局。"),//具体分数由 GameEngine 向 GoRule 查询
+        OUT_OF_RANGE("落子超出棋盘范围。"),
+        OCCUPIED("该位置已有棋子，落子无效。"),
+        SUICIDE("自杀手（无气且未提子），落子无效。"),
+        SUPERKO("全局同形（打劫需先找劫材），落子无效。"),
+        PASS_NOT_ALLOWED("五子棋不支持虚着（pass）。");
+
+        private final String message;
+
+        MoveCode(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
     //一次落子后的返回结果
-    class MoveResult {
-        private final boolean success;//落子是否成功
-        private final String message;//执行后的消息
+    //不可变，每种（结果码, 状态）组合只有一个共享实例，落子时不分配对象、不拼接字符串
+    final class MoveResult {
+        private static final MoveResult[][] CACHE =
+                new MoveResult[MoveCode.values().length][GameStatus.values().length];
+
+        static {
+            for (MoveCode code : MoveCode.values()) {
+                for (GameStatus status : GameStatus.values()) {
+                    CACHE[code.ordinal()][status.ordinal()] = new MoveResult(code, status);
+                }
+            }
+        }
+
+        private final MoveCode code;//结果码
         private final GameStatus status;//游戏当前的状态
 
-        public MoveResult(boolean success, String message, GameStatus status) {
-            this.success = success;
-            this.message = message;
+        private MoveResult(MoveCode code, GameStatus status) {
+            this.code = code;
             this.status = status;
         }
 
+        public static MoveResult of(MoveCode code, GameStatus status) {
+            return CACHE[code.ordinal()][status.ordinal()];
+        }
+
+        //落子是否成功：只有失败的结果码才是错误
         public boolean isSuccess() {
-            return success;
+            switch (code) {
+                case OUT_OF_RANGE:
+                case OCCUPIED:
+                case SUICIDE:
+                case SUPERKO:
+                case PASS_NOT_ALLOWED:
+                    return false;
+                default:
+                    return true;
+            }
         }
 
-        public String getMessage() {
-            return message;
+        public MoveCode getCode() {
+            return code;
         }
 
         public GameStatus getStatus() {
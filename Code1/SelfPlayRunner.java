@@ -0,0 +1,277 @@
+package boardgame;
+
+import java.io.File;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+//无界面批量自对弈：多个线程同时下 N 局，双方为指定的电脑玩家，用于回归测试电脑玩家和批量生成对局数据
+//每个线程持有一个安静模式的 GameEngine 和自己的一对玩家（电脑玩家内部有状态，不在线程间共享），
+//从共享计数器领取下一局的编号，对局过程中不输出任何内容；偶数局 A 执黑、奇数局 B 执黑，抵消先手优势。
+//统计用 LongAdder 累加，线程之间没有锁。
+public class SelfPlayRunner {
+    private final GameType gameType;
+    private final int size;
+    private final Supplier<ComputerPlayer> playerA;
+    private final Supplier<ComputerPlayer> playerB;
+    private final int threads;
+    private int openingPlies = 0;//开局的随机步数，让确定性的电脑玩家之间也能下出不同的对局
+    private String outputDirectory;//每局存档的目录，为 null 时不存档
+    private final AtomicLong seeds = new AtomicLong(System.nanoTime());
+
+    //批量对局的结果
+    public static final class Report {
+        private final int games;
+        private final int threads;
+        private final long blackWins, whiteWins, draws, unfinished;
+        private final long winsA, winsB;
+        private final long moves;
+        private final long elapsedNanos;
+        private final String nameA, nameB;
+
+        private Report(int games, int threads, long blackWins, long whiteWins, long draws, long unfinished,
+                       long winsA, long winsB, long moves, long elapsedNanos, String nameA, String nameB) {
+            this.games = games;
+            this.threads = threads;
+            this.blackWins = blackWins;
+            this.whiteWins = whiteWins;
+            this.draws = draws;
+            this.unfinished = unfinished;
+            this.winsA = winsA;
+            this.winsB = winsB;
+            this.moves = moves;
+            this.elapsedNanos = elapsedNanos;
+            this.nameA = nameA;
+            this.nameB = nameB;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        public long getBlackWins() {
+            return blackWins;
+        }
+
+        public long getWhiteWins() {
+            return whiteWins;
+        }
+
+        public long getDraws() {
+            return draws;
+        }
+
+        //电脑给出非法着法而中断的对局数
+        public long getUnfinished() {
+            return unfinished;
+        }
+
+        public long getWinsA() {
+            return winsA;
+        }
+
+        public long getWinsB() {
+            return winsB;
+        }
+
+        //总步数（含虚着）
+        public long getMoves() {
+            return moves;
+        }
+
+        public double getGamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+        }
+
+        public double getMovesPerSecond() {
+            return elapsedNanos == 0 ? 0 : moves * 1e9 / elapsedNanos;
+        }
+
+        //A 的得分率：胜 1 分，和 0.5 分
+        public double getScoreA() {
+            long decided = games - unfinished;
+            return decided == 0 ? 0 : (winsA + 0.5 * draws) / decided;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("共 %d 局（%d 线程），用时 %.1f 秒：每秒 %.2f 局，每秒 %.1f 步，平均每局 %.1f 步%n"
+                            + "黑胜 %d，白胜 %d，和棋 %d，中断 %d%n"
+                            + "A（%s）胜 %d，B（%s）胜 %d，A 得分率 %.1f%%",
+                    games, threads, elapsedNanos / 1e9, getGamesPerSecond(), getMovesPerSecond(),
+                    games == 0 ? 0.0 : (double) moves / games,
+                    blackWins, whiteWins, draws, unfinished,
+                    nameA, winsA, nameB, winsB, getScoreA() * 100);
+        }
+    }
+
+    //playerA / playerB 每个线程各调用一次，创建该线程使用的玩家
+    public SelfPlayRunner(GameType gameType, int size, Supplier<ComputerPlayer> playerA,
+                          Supplier<ComputerPlayer> playerB, int threads) {
+        this.gameType = gameType;
+        this.size = size;
+        this.playerA = playerA;
+        this.playerB = playerB;
+        this.threads = Math.max(1, threads);
+    }
+
+    //每局开头由双方在中央区域随机下 plies 步，再交给电脑玩家
+    public void setOpeningPlies(int plies) {
+        this.openingPlies = Math.max(0, plies);
+    }
+
+    //每局结束后用 GameEngine.saveToFile 存到 directory 下，可供开局库生成器等使用
+    public void setOutputDirectory(String directory) {
+        this.outputDirectory = directory;
+    }
+
+    //下 games 局，全部结束后返回统计
+    public Report run(int games) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        LongAdder blackWins = new LongAdder(), whiteWins = new LongAdder(), draws = new LongAdder();
+        LongAdder unfinished = new LongAdder(), winsA = new LongAdder(), winsB = new LongAdder();
+        LongAdder moves = new LongAdder();
+        String[] names = new String[2];
+        RuntimeException[] failure = new RuntimeException[1];
+
+        long start = System.nanoTime();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ComputerPlayer a = withOpening(playerA.get());
+                ComputerPlayer b = withOpening(playerB.get());
+                synchronized (names) {
+                    names[0] = a.getName();
+                    names[1] = b.getName();
+                }
+                GameEngine engine = new GameEngine();
+                engine.setQuiet(true);
+                try {
+                    for (int g = next.getAndIncrement(); g < games; g = next.getAndIncrement()) {
+                        boolean aIsBlack = (g & 1) == 0;
+                        engine.setComputerPlayer(Piece.BLACK, aIsBlack ? a : b);
+                        engine.setComputerPlayer(Piece.WHITE, aIsBlack ? b : a);
+                        engine.startGame(gameType, size);
+                        GameStatus status = engine.getStatus();
+                        moves.add(engine.getMoveHistory().length);
+                        if (status == GameStatus.BLACK_WIN) {
+                            blackWins.increment();
+                            (aIsBlack ? winsA : winsB).increment();
+                        } else if (status == GameStatus.WHITE_WIN) {
+                            whiteWins.increment();
+                            (aIsBlack ? winsB : winsA).increment();
+                        } else if (status == GameStatus.DRAW) {
+                            draws.increment();
+                        } else {
+                            unfinished.increment();
+                        }
+                        if (outputDirectory != null) {
+                            engine.saveToFile(new File(outputDirectory, String.format("game-%06d.sav", g)).getPath());
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    synchronized (failure) {
+                        if (failure[0] == null) failure[0] = e;
+                    }
+                }
+            }, "self-play-" + t);
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return new Report(games, threads, blackWins.sum(), whiteWins.sum(), draws.sum(), unfinished.sum(),
+                winsA.sum(), winsB.sum(), moves.sum(), elapsed, names[0], names[1]);
+    }
+
+    private ComputerPlayer withOpening(ComputerPlayer player) {
+        return openingPlies == 0 ? player : new RandomOpening(player, openingPlies, seeds.getAndIncrement());
+    }
+
+    //开局随机化：棋盘上的子数少于 plies 时在中央区域随机落子，之后交给被包装的玩家
+    private static final class RandomOpening implements ComputerPlayer {
+        private final ComputerPlayer player;
+        private final int plies;
+        private final SplittableRandom random;
+        private int[] moves = new int[0];
+
+        RandomOpening(ComputerPlayer player, int plies, long seed) {
+            this.player = player;
+            this.plies = plies;
+            this.random = new SplittableRandom(seed ^ 0x9E3779B97F4A7C15L);
+        }
+
+        @Override
+        public int chooseMove(Board board, RuleStrategy rule, Piece player) {
+            if (board.count(Piece.BLACK) + board.count(Piece.WHITE) < plies) {
+                int size = board.getSize();
+                if (moves.length < board.getPointCount()) {
+                    moves = new int[board.getPointCount()];
+                }
+                int count = rule.legalMoves(board, player, moves);
+                int center = size / 2, radius = Math.max(1, size / 4);
+                int m = 0;
+                for (int i = 0; i < count; i++) {
+                    int p = moves[i];
+                    if (Math.abs(p / size - center) <= radius && Math.abs(p % size - center) <= radius) {
+                        moves[m++] = p;
+                    }
+                }
+                if (m > 0) {
+                    return moves[random.nextInt(m)];
+                }
+            }
+            return this.player.chooseMove(board, rule, player);
+        }
+
+        @Override
+        public String getName() {
+            return player.getName();
+        }
+    }
+
+    //按描述创建玩家：random、ai:毫秒（五子棋 alpha-beta）、mcts:毫秒（围棋蒙特卡洛，单线程）
+    private static Supplier<ComputerPlayer> parsePlayer(String spec, AtomicLong seeds) {
+        String[] parts = spec.split(":");
+        long millis = parts.length > 1 ? Long.parseLong(parts[1]) : 100;
+        switch (parts[0]) {
+            case "random":
+                return () -> new RandomPlayer(seeds.getAndIncrement());
+            case "ai":
+                return () -> new GomokuAI(millis, 16);
+            case "mcts":
+                return () -> new GoMcts(millis, 1);
+            default:
+                throw new IllegalArgumentException("未知的玩家：" + spec);
+        }
+    }
+
+    //命令行入口：gomoku|go 棋盘大小 局数 线程数 玩家A 玩家B [开局随机步数] [存档目录]
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 6) {
+            System.out.println("用法：SelfPlayRunner gomoku|go 棋盘大小 局数 线程数 玩家A 玩家B [开局随机步数] [存档目录]");
+            System.out.println("玩家：random、ai:毫秒（五子棋）、mcts:毫秒（围棋）");
+            return;
+        }
+        try {
+            GameType type = args[0].equalsIgnoreCase("gomoku") ? GameType.GOMOKU : GameType.GO;
+            int size = Integer.parseInt(args[1]);
+            int games = Integer.parseInt(args[2]);
+            int threads = Integer.parseInt(args[3]);
+            AtomicLong seeds = new AtomicLong(System.nanoTime());
+            SelfPlayRunner runner = new SelfPlayRunner(type, size, parsePlayer(args[4], seeds),
+                    parsePlayer(args[5], seeds), threads);
+            if (args.length > 6) runner.setOpeningPlies(Integer.parseInt(args[6]));
+            if (args.length > 7) runner.setOutputDirectory(args[7]);
+            System.out.println(runner.run(games));
+        } catch (IllegalArgumentException e) {
+            System.out.println("参数错误：" + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package boardgame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//SGF 棋谱读取：从 ReadableByteChannel 按字节流式解析，不把整个文件读成字符串，一个文件里可以有多局（棋谱集）
+//支持围棋（GM[1]）和五子棋（GM[4]）；只读主线（每个分支取第一个变化），其余变化整段跳过。
+//用到的属性：GM、SZ、KM、RU、RE、PL、B、W、AB、AW、AE，其余属性（对局者、注释等）只扫过不保存。
+//每局解析完后按 RuleStrategy 重放一遍，得到 GameRecord；着法不合法等错误在整局扫完之后才抛出，
+//捕获 IOException 后可以继续调用 next 读下一局。
+public class SgfReader {
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_VALUE_BYTES = 64;//需要保存的属性值最多保留的字节数
+    private static final int NO_POINT = -2;
+
+    //属性名编码：每个大写字母 5 比特，只编码不超过两个字母的属性名
+    private static final int B = id("B"), W = id("W"), AB = id("AB"), AW = id("AW"), AE = id("AE");
+    private static final int SZ = id("SZ"), KM = id("KM"), GM = id("GM"), RU = id("RU"), RE = id("RE"), PL = id("PL");
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private int pushedBack = -1;
+    private final byte[] value = new byte[MAX_VALUE_BYTES];
+    private int valueLength;
+    private int gameIndex = 0;
+
+    //当前这一局解析出的内容
+    private int gm, sz;
+    private double komi;
+    private String ruleSet, result;
+    private Piece player;
+    private int[] moves = new int[512];//编码为 row << 5 | col，虚着为 GameMemento.PASS
+    private Piece[] moveColors = new Piece[512];
+    private int moveCount;
+    private int[] setup = new int[64];//编码为 Piece 的 ordinal << 10 | row << 5 | col，按出现顺序应用
+    private int setupCount;
+    private String error;
+
+    public SgfReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    //已读到的局数（含出错的局）
+    public int getGameIndex() {
+        return gameIndex;
+    }
+
+    //读下一局，没有更多对局时返回 null；这一局格式或着法有误时抛出 IOException，之后仍可继续读
+    public GameRecord next() throws IOException {
+        int c;
+        do {
+            c = read();
+            if (c < 0) return null;
+        } while (c != '(');
+        gameIndex++;
+        reset();
+        int depth = 1;
+        int mainDepth = 1;//主线所在的最深一层
+        boolean mainEnded = false;//主线已经结束，后面都是旁支变化
+        while (depth > 0) {
+            c = read();
+            if (c < 0) {
+                throw new IOException(where("unexpected end of file"));
+            }
+            if (c == '(') {
+                if (depth == mainDepth && !mainEnded) {
+                    depth++;
+                    mainDepth++;
+                } else {
+                    skipTree();
+                }
+            } else if (c == ')') {
+                depth--;
+                mainDepth = depth;
+                mainEnded = true;
+            } else if (c >= 'A' && c <= 'Z') {
+                readProperty(c, !mainEnded);
+            }
+        }
+        if (error != null) {
+            throw new IOException(where(error));
+        }
+        return replay();
+    }
+
+    //按大写字母读属性名，再读它的所有值；小写字母是旧格式里属性名的一部分，忽略
+    private void readProperty(int first, boolean apply) throws IOException {
+        int ident = 0, letters = 0;
+        int c = first;
+        while (c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z') {
+            if (c <= 'Z') {
+                ident = ident << 5 | (c - 'A' + 1);
+                letters++;
+            }
+            c = read();
+        }
+        if (letters > 2) ident = -1;
+        boolean keep = apply && (ident == B || ident == W || ident == AB || ident == AW || ident == AE
+                || ident == SZ || ident == KM || ident == GM || ident == RU || ident == RE || ident == PL);
+        for (c = skipSpace(c); c == '['; c = skipSpace(read())) {
+            readValue(keep);
+            if (keep) applyValue(ident);
+        }
+        pushedBack = c;
+    }
+
+    private void applyValue(int ident) {
+        if (ident == B || ident == W) {
+            int p = point();
+            if (p == NO_POINT) return;
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moveCount * 2);
+                moveColors = Arrays.copyOf(moveColors, moveCount * 2);
+            }
+            moves[moveCount] = p;
+            moveColors[moveCount++] = ident == B ? Piece.BLACK : Piece.WHITE;
+        } else if (ident == AB || ident == AW || ident == AE) {
+            if (moveCount > 0) {
+                fail("setup stones after the first move are not supported");
+                return;
+            }
+            Piece color = ident == AB ? Piece.BLACK : ident == AW ? Piece.WHITE : Piece.EMPTY;
+            addSetup(color);
+        } else if (ident == SZ) {
+            sz = parseInt();
+        } else if (ident == GM) {
+            gm = parseInt();
+        } else if (ident == KM) {
+            try {
+                komi = Double.parseDouble(text().trim());
+            } catch (NumberFormatException e) {
+                //贴目写法不规范时按规则默认值
+            }
+        } else if (ident == RU) {
+            ruleSet = text().trim();
+        } else if (ident == RE) {
+            result = text().trim();
+        } else if (ident == PL) {
+            player = valueLength > 0 && (value[0] == 'W' || value[0] == 'w') ? Piece.WHITE : Piece.BLACK;
+        }
+    }
+
+    //着法里出现 tt 等越界坐标时视为虚着，其余越界坐标在重放时报错
+    private int point() {
+        if (valueLength == 0) return GameMemento.PASS;
+        if (valueLength != 2) {
+            fail("bad point " + text());
+            return NO_POINT;
+        }
+        int col = value[0] - 'a', row = value[1] - 'a';
+        if (col == 19 && row == 19) return GameMemento.PASS;
+        if (col < 0 || col >= 26 || row < 0 || row >= 26) {
+            fail("bad point " + text());
+            return NO_POINT;
+        }
+        return row << 5 | col;
+    }
+
+    //AB / AW / AE 的值：单点或 FF[4] 的矩形压缩写法 aa:cc
+    private void addSetup(Piece color) {
+        int col1, row1, col2, row2;
+        if (valueLength == 2) {
+            col1 = col2 = value[0] - 'a';
+            row1 = row2 = value[1] - 'a';
+        } else if (valueLength == 5 && value[2] == ':') {
+            col1 = Math.min(value[0], value[3]) - 'a';
+            row1 = Math.min(value[1], value[4]) - 'a';
+            col2 = Math.max(value[0], value[3]) - 'a';
+            row2 = Math.max(value[1], value[4]) - 'a';
+        } else {
+            fail("bad point " + text());
+            return;
+        }
+        if (col1 < 0 || row1 < 0 || col2 >= 26 || row2 >= 26) {
+            fail("bad point " + text());
+            return;
+        }
+        for (int row = row1; row <= row2; row++) {
+            for (int col = col1; col <= col2; col++) {
+                if (setupCount == setup.length) {
+                    setup = Arrays.copyOf(setup, setupCount * 2);
+                }
+                setup[setupCount++] = color.ordinal() << 10 | row << 5 | col;
+            }
+        }
+    }
+
+    //把解析出的这一局按规则重放：黑白没有交替时围棋补一手虚着（让子棋常见），五子棋视为错误
+    private GameRecord replay() throws IOException {
+        GameType type;
+        if (gm == 1) type = GameType.GO;
+        else if (gm == 4) type = GameType.GOMOKU;
+        else throw new IOException(where("unsupported game GM[" + gm + "]"));
+        int size = sz > 0 ? sz : type == GameType.GO ? 19 : 15;
+        if (size < 8 || size > 19) {
+            throw new IOException(where("unsupported board size " + size));
+        }
+        GoRule.KoRule koRule = GoRule.KoRule.POSITIONAL;
+        GoScorer.ScoringRule scoringRule = GoScorer.ScoringRule.AREA;
+        double gameKomi = 0;
+        if (type == GameType.GO) {
+            //日韩规则数目、同形按局面加行棋方判断，其余（中国、应氏、AGA 等）数子、全局同形禁止
+            if (ruleSet != null && (ruleSet.regionMatches(true, 0, "Japanese", 0, 8)
+                    || ruleSet.regionMatches(true, 0, "Korean", 0, 6))) {
+                koRule = GoRule.KoRule.SITUATIONAL;
+                scoringRule = GoScorer.ScoringRule.TERRITORY;
+            }
+            gameKomi = Double.isNaN(komi) ? 7.5 : komi;
+        }
+        RuleStrategy rule = type == GameType.GOMOKU ? new GomokuRule() : new GoRule(koRule, scoringRule, gameKomi);
+
+        Board board = new Board(size);
+        byte[] setupCells = null;
+        if (setupCount > 0) {
+            for (int i = 0; i < setupCount; i++) {
+                int row = setup[i] >> 5 & 31, col = setup[i] & 31;
+                if (row >= size || col >= size) {
+                    throw new IOException(where("setup point outside the board"));
+                }
+                board.set(row * size + col, Piece.values()[setup[i] >> 10]);
+            }
+            setupCells = new byte[board.getPointCount()];
+            for (int p = 0; p < setupCells.length; p++) {
+                setupCells[p] = (byte) board.get(p).ordinal();
+            }
+        }
+        Piece first = moveCount > 0 ? moveColors[0] : player != null ? player : Piece.BLACK;
+        Piece side = first;
+        GameStatus status = GameStatus.ONGOING;
+        int[] played = new int[moveCount + moveCount / 4 + 1];
+        int count = 0;
+        for (int i = 0; i < moveCount; i++) {
+            if (status != GameStatus.ONGOING) {
+                throw new IOException(where("moves after the end of the game"));
+            }
+            if (moveColors[i] != side) {
+                if (type == GameType.GOMOKU) {
+                    throw new IOException(where("move " + (i + 1) + " is played out of turn"));
+                }
+                rule.pass(board, side);
+                if (count == played.length) played = Arrays.copyOf(played, count * 2);
+                played[count++] = GameMemento.PASS;
+                side = side.opposite();
+            }
+            int m = moves[i];
+            RuleStrategy.MoveResult r;
+            int p;
+            if (m == GameMemento.PASS) {
+                p = GameMemento.PASS;
+                r = rule.pass(board, side);
+            } else {
+                int row = m >> 5, col = m & 31;
+                if (row >= size || col >= size) {
+                    throw new IOException(where("move " + (i + 1) + " is outside the board"));
+                }
+                p = row * size + col;
+                r = rule.placePiece(board, row, col, side);
+            }
+            if (!r.isSuccess()) {
+                throw new IOException(where("illegal move " + (i + 1) + " (" + r.getCode() + ")"));
+            }
+            if (count == played.length) played = Arrays.copyOf(played, count * 2);
+            played[count++] = p;
+            status = r.getStatus();
+            //与 GameEngine 相同：对局结束后行棋方停在下最后一手的一方
+            if (status == GameStatus.ONGOING) {
+                side = side.opposite();
+            }
+        }
+        //RE 记录的结果优先（认负、超时、终局时的死子都由它体现），没有时用重放的结果
+        GameStatus recorded = parseResult();
+        if (recorded != null) status = recorded;
+        return new GameRecord(type, size, side, status, setupCells, first, koRule, scoringRule, gameKomi,
+                Arrays.copyOf(played, count));
+    }
+
+    private GameStatus parseResult() {
+        if (result == null || result.isEmpty()) return null;
+        char c = Character.toUpperCase(result.charAt(0));
+        if (c == 'B' && result.length() > 1 && result.charAt(1) == '+') return GameStatus.BLACK_WIN;
+        if (c == 'W' && result.length() > 1 && result.charAt(1) == '+') return GameStatus.WHITE_WIN;
+        if (c == '0' || c == 'D') return GameStatus.DRAW;
+        return null;
+    }
+
+    //跳过一个旁支变化，括号可以嵌套，属性值里的括号不算
+    private void skipTree() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            int c = read();
+            if (c < 0) {
+                throw new IOException(where("unexpected end of file"));
+            }
+            if (c == '[') readValue(false);
+            else if (c == '(') depth++;
+            else if (c == ')') depth--;
+        }
+    }
+
+    //读一个属性值直到未转义的 ]；keep 为 true 时保存到 value（超长部分丢弃）
+    private void readValue(boolean keep) throws IOException {
+        valueLength = 0;
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                throw new IOException(where("unexpected end of file in a property value"));
+            }
+            if (c == ']') return;
+            if (c == '\\') {
+                c = read();
+                if (c < 0) continue;
+            }
+            if (keep && valueLength < MAX_VALUE_BYTES) {
+                value[valueLength++] = (byte) c;
+            }
+        }
+    }
+
+    private int skipSpace(int c) throws IOException {
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            c = read();
+        }
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (pushedBack >= 0) {
+            int c = pushedBack;
+            pushedBack = -1;
+            return c;
+        }
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int n;
+            do {
+                n = channel.read(buffer);
+            } while (n == 0);
+            buffer.flip();
+            if (n < 0) return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    private int parseInt() {
+        int v = 0;
+        for (int i = 0; i < valueLength; i++) {
+            int d = value[i] - '0';
+            if (d < 0 || d > 9) break;//SZ[19:19] 等只取第一个数
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    private String text() {
+        return new String(value, 0, valueLength, StandardCharsets.UTF_8);
+    }
+
+    //只记第一个错误，整局扫完后再抛出，保证下一局从正确的位置开始
+    private void fail(String message) {
+        if (error == null) error = message;
+    }
+
+    private String where(String message) {
+        return "SGF game " + gameIndex + ": " + message;
+    }
+
+    private void reset() {
+        gm = 1;
+        sz = 0;
+        komi = Double.NaN;
+        ruleSet = null;
+        result = null;
+        player = null;
+        moveCount = 0;
+        setupCount = 0;
+        error = null;
+    }
+
+    private static int id(String name) {
+        int v = 0;
+        for (int i = 0; i < name.length(); i++) {
+            v = v << 5 | (name.charAt(i) - 'A' + 1);
+        }
+        return v;
+    }
+
+    //命令行入口：逐个读取 SGF 文件，统计局数、出错局数和每秒读入的局数（单线程）
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("用法：SgfReader 文件1.sgf 文件2.sgf ...");
+            return;
+        }
+        long games = 0, errors = 0, moves = 0;
+        long start = System.nanoTime();
+        for (String file : args) {
+            try (FileChannel channel = FileChannel.open(Path.of(file), StandardOpenOption.READ)) {
+                SgfReader reader = new SgfReader(channel);
+                int failed = -1;
+                while (true) {
+                    try {
+                        GameRecord record = reader.next();
+                        if (record == null) break;
+                        games++;
+                        moves += record.getMoves().length;
+                    } catch (IOException e) {
+                        if (reader.getGameIndex() == failed) throw e;
+                        failed = reader.getGameIndex();
+                        errors++;
+                        if (errors <= 10) System.out.println(file + "：" + e.getMessage());
+                    }
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("读入 %d 局（%d 步），出错 %d 局，用时 %.2f 秒，每秒 %.0f 局%n",
+                games, moves, errors, seconds, seconds == 0 ? 0.0 : games / seconds);
+    }
+}
@@ -0,0 +1,115 @@
+package boardgame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+//SGF 棋谱写出：把 GameRecord 写成 SGF 对局树，连续调用 write 得到多局的棋谱集
+//经由固定大小的缓冲区写入 WritableByteChannel，不在内存里拼整个文件；写完后调用 flush，通道由调用者关闭。
+//坐标第一个字母为列、第二个为行；虚着写作 B[] / W[]；围棋写出贴目和计分规则（数子法写 Chinese，数目法写 Japanese）。
+public class SgfWriter {
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MOVES_PER_LINE = 10;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+    public SgfWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    //写出一局
+    public void write(GameRecord record) throws IOException {
+        int size = record.getSize();
+        boolean go = record.getGameType() == GameType.GO;
+        put("(;FF[4]CA[UTF-8]AP[boardgame]GM[").put(go ? "1" : "4").put("]SZ[").put(Integer.toString(size)).put("]");
+        if (go) {
+            put("KM[").put(formatKomi(record.getKomi())).put("]RU[")
+                    .put(record.getScoringRule() == GoScorer.ScoringRule.TERRITORY ? "Japanese" : "Chinese").put("]");
+        }
+        String result = result(record.getStatus());
+        if (result != null) {
+            put("RE[").put(result).put("]");
+        }
+        if (record.hasSetup()) {
+            putSetup(record, Piece.BLACK, "AB");
+            putSetup(record, Piece.WHITE, "AW");
+        }
+        if (record.getSetupPlayer() == Piece.WHITE) {
+            put("PL[W]");
+        }
+        Piece side = record.getSetupPlayer();
+        int[] moves = record.getMoves();
+        for (int i = 0; i < moves.length; i++) {
+            if (i % MOVES_PER_LINE == 0) put("\n");
+            put(side == Piece.BLACK ? ";B[" : ";W[");
+            if (moves[i] != GameMemento.PASS) {
+                putPoint(moves[i], size);
+            }
+            put("]");
+            side = side.opposite();
+        }
+        put(")\n");
+    }
+
+    //把缓冲区里的内容全部写入通道
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void putSetup(GameRecord record, Piece color, String ident) throws IOException {
+        int size = record.getSize();
+        boolean first = true;
+        for (int p = 0; p < size * size; p++) {
+            if (record.getSetup(p) != color) continue;
+            if (first) {
+                put(ident);
+                first = false;
+            }
+            put("[");
+            putPoint(p, size);
+            put("]");
+        }
+    }
+
+    private void putPoint(int p, int size) throws IOException {
+        ensure(2);
+        buffer.put((byte) ('a' + p % size)).put((byte) ('a' + p / size));
+    }
+
+    private SgfWriter put(String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        ensure(bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private static String result(GameStatus status) {
+        switch (status) {
+            case BLACK_WIN:
+                return "B+";
+            case WHITE_WIN:
+                return "W+";
+            case DRAW:
+                return "0";
+            default:
+                return null;
+        }
+    }
+
+    //整数贴目不带小数点
+    private static String formatKomi(double komi) {
+        return komi == Math.rint(komi) ? Long.toString((long) komi) : Double.toString(komi);
+    }
+}
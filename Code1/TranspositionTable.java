@@ -0,0 +1,144 @@
+package boardgame;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+//置换表：以局面哈希（Board.getHash(行棋方)）为键，缓存搜索过的局面的结果
+//表存放在堆外（直接 ByteBuffer，每段至多 1GB，可以分多段组成数 GB 的表），不占用 Java 堆，不增加 GC 停顿。
+//每个表项 16 字节：(键 ^ 数据, 数据)，4 个表项组成一个 64 字节的桶，一次探查只触及一条缓存行。
+//多个线程可以共享同一张表，读写都不加锁：并发写入同一表项时读方可能拿到分别来自两次写入的两个 long，
+//此时 键 ^ 数据 与所查的键对不上，当作未命中处理，不会读到张冠李戴的结果。
+//数据布局（低位到高位）：
+//  0-15 最佳着法 + 1（0 表示没有），16-23 搜索深度，24-25 边界类型，26 有效位，27-31 写入时的代数，32-63 分数
+public class TranspositionTable {
+    public static final int EXACT = 0;//精确值
+    public static final int LOWER = 1;//下界（发生了 beta 截断）
+    public static final int UPPER = 2;//上界（没有着法超过 alpha）
+
+    private static final long VALID = 1L << 26;
+    private static final int AGE_SHIFT = 27;
+    private static final int AGE_MASK = 31;
+    private static final int BUCKET_BYTES = 64;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int SEGMENT_BUCKETS_SHIFT = 24;//每段 2^24 个桶，即 1GB
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer[] segments;
+    private final long bucketMask;
+    private final int segmentMask;
+    private volatile int generation = 0;
+
+    //按内存大小（MB）分配，桶数取 2 的幂
+    public TranspositionTable(int megabytes) {
+        long buckets = Long.highestOneBit(Math.max(1L, (long) megabytes * 1024 * 1024 / BUCKET_BYTES));
+        int perSegment = (int) Math.min(buckets, 1L << SEGMENT_BUCKETS_SHIFT);
+        int count = (int) (buckets / perSegment);
+        segments = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            //按缓存行对齐，VarHandle 的原子访问要求地址按 8 字节对齐
+            segments[i] = ByteBuffer.allocateDirect(perSegment * BUCKET_BYTES + BUCKET_BYTES)
+                    .alignedSlice(BUCKET_BYTES).order(ByteOrder.nativeOrder());
+        }
+        bucketMask = buckets - 1;
+        segmentMask = perSegment - 1;
+    }
+
+    //表的总字节数
+    public long getBytes() {
+        return (bucketMask + 1) * BUCKET_BYTES;
+    }
+
+    //开始新的一次搜索：之后写入的表项算作新一代，旧代的表项优先被替换
+    public void newSearch() {
+        generation = (generation + 1) & AGE_MASK;
+    }
+
+    //查询：命中返回打包的数据，未命中返回 0
+    public long probe(long key) {
+        long bucket = key & bucketMask;
+        ByteBuffer seg = segments[(int) (bucket >>> SEGMENT_BUCKETS_SHIFT)];
+        int base = ((int) bucket & segmentMask) * BUCKET_BYTES;
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            int off = base + i * 16;
+            long data = (long) LONGS.getOpaque(seg, off + 8);
+            if (data != 0 && ((long) LONGS.getOpaque(seg, off) ^ data) == key) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    //写入：同一局面的表项在本代已有更深的结果时保留原结果，否则覆盖（新结果没有着法时沿用原来的着法）；
+    //不同局面时优先用空位，其次替换 深度 - 8 × 代差 最小的表项
+    public void store(long key, int move, int score, int depth, int bound) {
+        long bucket = key & bucketMask;
+        ByteBuffer seg = segments[(int) (bucket >>> SEGMENT_BUCKETS_SHIFT)];
+        int base = ((int) bucket & segmentMask) * BUCKET_BYTES;
+        int gen = generation;
+        int victim = base;
+        int victimValue = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            int off = base + i * 16;
+            long data = (long) LONGS.getOpaque(seg, off + 8);
+            if (data == 0) {
+                victim = off;
+                break;
+            }
+            if (((long) LONGS.getOpaque(seg, off) ^ data) == key) {
+                if (depth(data) > depth && age(data) == gen) {
+                    return;
+                }
+                if (move < 0) {
+                    move = move(data);
+                }
+                victim = off;
+                break;
+            }
+            int value = depth(data) - 8 * ((gen - age(data)) & AGE_MASK);
+            if (value < victimValue) {
+                victimValue = value;
+                victim = off;
+            }
+        }
+        long data = pack(move, score, depth, bound) | ((long) gen << AGE_SHIFT);
+        LONGS.setOpaque(seg, victim, key ^ data);
+        LONGS.setOpaque(seg, victim + 8, data);
+    }
+
+    //清空整张表，调用时不能有其他线程在读写
+    public void clear() {
+        byte[] zeros = new byte[1 << 16];
+        for (ByteBuffer seg : segments) {
+            for (int i = 0, end = seg.capacity(); i < end; i += zeros.length) {
+                seg.put(i, zeros, 0, Math.min(zeros.length, end - i));
+            }
+        }
+    }
+
+    public static long pack(int move, int score, int depth, int bound) {
+        return (move + 1L) | ((long) depth << 16) | ((long) bound << 24) | VALID | ((long) score << 32);
+    }
+
+    //最佳着法，没有返回 -1
+    public static int move(long entry) {
+        return (int) (entry & 0xFFFF) - 1;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> 24) & 0x3;
+    }
+
+    public static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    private static int age(long entry) {
+        return (int) (entry >>> AGE_SHIFT) & AGE_MASK;
+    }
+}
@@ -0,0 +1,56 @@
+package boardgame;
+
+//Zobrist 哈希键表
+//每个(颜色, 点)对应一个随机 64 位键，局面哈希为所有棋子键的异或，落子/提子时只需异或一次即可增量更新。
+//键由固定种子生成，同一程序的不同进程、不同运行得到的哈希一致，可以写入文件（开局库、棋谱库等）。
+public final class Zobrist {
+    private static final int MAX_POINTS = 19 * 19;
+    private static final long[] BLACK_KEYS = new long[MAX_POINTS];
+    private static final long[] WHITE_KEYS = new long[MAX_POINTS];
+    //不同尺寸的空棋盘初始哈希，避免不同尺寸棋盘的局面互相冲突
+    private static final long[] SIZE_KEYS = new long[20];
+    //轮到白方行棋时异或的键
+    private static final long WHITE_TO_MOVE;
+
+    //随机数生成器状态，固定初值
+    private static long state = 0x5DEECE66DL;
+
+    static {
+        for (int i = 0; i < MAX_POINTS; i++) {
+            BLACK_KEYS[i] = nextKey();
+            WHITE_KEYS[i] = nextKey();
+        }
+        for (int i = 0; i < SIZE_KEYS.length; i++) {
+            SIZE_KEYS[i] = nextKey();
+        }
+        WHITE_TO_MOVE = nextKey();
+    }
+
+    private Zobrist() {
+    }
+
+    //颜色 piece 位于点 point 的键，空点为 0
+    public static long key(Piece piece, int point) {
+        if (piece == Piece.BLACK) return BLACK_KEYS[point];
+        if (piece == Piece.WHITE) return WHITE_KEYS[point];
+        return 0L;
+    }
+
+    //size 路空棋盘的哈希
+    public static long emptyBoard(int size) {
+        return SIZE_KEYS[size];
+    }
+
+    //行棋方对应的键，黑方为 0
+    public static long sideToMove(Piece player) {
+        return player == Piece.WHITE ? WHITE_TO_MOVE : 0L;
+    }
+
+    //SplitMix64：每次推进固定步长后混合，得到分布均匀的 64 位随机数
+    private static long nextKey() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}